@@ -0,0 +1,64 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Created in 2026/10/17 20:55
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 固定的class文件语料,在resources/corpus下,index.txt列出所有文件
+ * <p>
+ * 这些class是用javac 17(--release 17)编译仓库里的源码得到的,之后不再重新编译,保证不同机器/不同时间的结果可比
+ * <p>
+ **/
+public final class Corpus {
+	private Corpus() {
+	}
+	
+	/**
+	 * @return 类名(.分隔) : 字节码,按index.txt的顺序
+	 */
+	public static Map<String, byte[]> all() {
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		try (InputStream index = open("index.txt");
+		     BufferedReader reader = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.strip();
+				if (line.isEmpty()) continue;
+				try (InputStream is = open(line)) {
+					classes.put(line.substring(0, line.length() - ".class".length()), is.readAllBytes());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return classes;
+	}
+	
+	/**
+	 * @param simpleName 不带包名的类名
+	 * @return 类名(.分隔) : 字节码
+	 */
+	public static Map.Entry<String, byte[]> get(String simpleName) {
+		return all().entrySet()
+				.stream()
+				.filter(e -> e.getKey().endsWith("." + simpleName))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("语料中没有" + simpleName));
+	}
+	
+	private static InputStream open(String name) {
+		return Objects.requireNonNull(Corpus.class.getResourceAsStream("/corpus/" + name), name);
+	}
+}
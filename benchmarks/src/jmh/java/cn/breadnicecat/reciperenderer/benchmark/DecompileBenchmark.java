@@ -0,0 +1,54 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.utils.FernFlowerUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 21:26
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 反编译{@link Corpus}里的类,不经过DecompileCache
+ * <p>
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DecompileBenchmark {
+	@State(Scope.Thread)
+	public static class Single {
+		@Param({"ExistHelper", "InterpreterUtil", "TextBuffer", "NeuQuant", "ExprProcessor"})
+		public String clazz;
+		
+		private String className;
+		private byte[] bytes;
+		
+		@Setup(Level.Trial)
+		public void setup() {
+			Map.Entry<String, byte[]> entry = Corpus.get(clazz);
+			className = entry.getKey();
+			bytes = entry.getValue();
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Batch {
+		private final Map<String, byte[]> all = Corpus.all();
+	}
+	
+	@Benchmark
+	public String decompile(Single s) {
+		return FernFlowerUtils.decompile(s.bytes, s.className);
+	}
+	
+	/**
+	 * 整个语料放在同一个上下文里
+	 */
+	@Benchmark
+	public Map<String, String> decompileAll(Batch b) {
+		return FernFlowerUtils.decompileAll(b.all, null, null);
+	}
+}
@@ -0,0 +1,46 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.utils.ExistHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 21:02
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 模拟一次导出里图标路径的去重,distinct越小重名越多,getModified要试的后缀就越长
+ * <p>
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExistHelperBenchmark {
+	private static final int PATHS = 4096;
+	
+	@Param({"4096", "512", "64"})
+	public int distinct;
+	
+	private String[] paths;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(0x5EED);
+		paths = new String[PATHS];
+		for (int i = 0; i < PATHS; i++) {
+			paths[i] = "attachment/item/" + Integer.toString(random.nextInt(distinct), 36) + "_icon.png";
+		}
+	}
+	
+	@Benchmark
+	public void getModified(Blackhole bh) {
+		ExistHelper helper = new ExistHelper();
+		for (String path : paths) {
+			bh.consume(helper.getModified(path));
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.render.PngEncoder;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 23:48
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 编码一个图标大小的RGBA图片,像素是带透明边缘的色块加少量噪点,接近物品图标的可压缩程度
+ * <p>
+ * 输出缓冲编码后立即归还,测的是池已经预热之后的稳定状态
+ * <p>
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PngEncoderBenchmark {
+	@Param({"32", "128"})
+	public int size;
+	
+	private ByteBuffer pixels;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(0x5EED);
+		pixels = ByteBuffer.allocateDirect(size * size * 4);
+		int margin = size / 8;
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				boolean inside = x >= margin && y >= margin && x < size - margin && y < size - margin;
+				int block = (x / Math.max(1, size / 16) + y / Math.max(1, size / 16)) % 4;
+				int noise = random.nextInt(16) == 0 ? random.nextInt(32) : 0;
+				pixels.put((byte) (inside ? 60 + block * 40 + noise : 0));
+				pixels.put((byte) (inside ? 120 - block * 20 + noise : 0));
+				pixels.put((byte) (inside ? 30 + block * 10 : 0));
+				pixels.put((byte) (inside ? 255 : 0));
+			}
+		}
+		pixels.flip();
+	}
+	
+	@Benchmark
+	public long encode() {
+		try (Attachment png = PngEncoder.encode(pixels, size, size, 4)) {
+			return png.crc();
+		}
+	}
+}
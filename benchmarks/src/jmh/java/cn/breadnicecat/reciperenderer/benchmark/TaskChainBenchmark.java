@@ -0,0 +1,128 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.utils.TaskChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created in 2026/10/18 00:22
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 多个线程提交渲染任务,同时一个线程像渲染线程那样逐帧执行,对比无锁的{@link TaskChain}和原来用synchronized的实现
+ * <p>
+ * 每组3个生产者1个消费者,分别给出add和run的吞吐;队列积压超过{@link #MAX_DEPTH}时生产者让出CPU等待,避免内存无限增长
+ * (迭代结束时消费者先停下,生产者要看{@link Control#stopMeasurement}退出等待)
+ * <p>
+ **/
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskChainBenchmark {
+	private static final int MAX_DEPTH = 1 << 16;
+	private static final Runnable NOOP = () -> {
+	};
+	
+	private TaskChain lockFree;
+	private LockedChain locked;
+	
+	@Setup(Level.Iteration)
+	public void setup() {
+		lockFree = new TaskChain();
+		locked = new LockedChain();
+	}
+	
+	@Benchmark
+	@Group("lockFree")
+	@GroupThreads(3)
+	public void lockFreeAdd(Producer p, Control control) {
+		if ((++p.added & 1023) == 0) {
+			while (lockFree.getQueueDepth() > MAX_DEPTH && !control.stopMeasurement) Thread.yield();
+		}
+		lockFree.add(NOOP);
+	}
+	
+	@Benchmark
+	@Group("lockFree")
+	@GroupThreads(1)
+	public int lockFreeRun() {
+		lockFree.run();
+		return lockFree.getLastTasksPerFrame();
+	}
+	
+	@Benchmark
+	@Group("locked")
+	@GroupThreads(3)
+	public void lockedAdd(Producer p, Control control) {
+		if ((++p.added & 1023) == 0) {
+			while (locked.depth.get() > MAX_DEPTH && !control.stopMeasurement) Thread.yield();
+		}
+		locked.add(NOOP);
+	}
+	
+	@Benchmark
+	@Group("locked")
+	@GroupThreads(1)
+	public int lockedRun() {
+		return locked.run();
+	}
+	
+	@State(Scope.Thread)
+	public static class Producer {
+		int added;
+	}
+	
+	/**
+	 * 原来的实现(去掉了profiler和预算调整): 追加和取帧边界都锁整条链,深度用AtomicInteger,每个任务同样计时
+	 */
+	static class LockedChain {
+		Node cur, tail;
+		final AtomicInteger depth = new AtomicInteger();
+		double avgTaskNs;
+		
+		LockedChain() {
+			cur = tail = new Node(null);
+		}
+		
+		void add(Runnable r) {
+			depth.incrementAndGet();
+			synchronized (this) {
+				tail = tail.next = new Node(r);
+			}
+		}
+		
+		int run() {
+			Node marker;
+			synchronized (this) {
+				marker = tail = tail.next = new Node(null);
+			}
+			int ran = 0;
+			Node next;
+			while ((next = cur.next) != null) {
+				cur = next;
+				if (next == marker) break;
+				if (next.runnable == null) continue;
+				long t = System.nanoTime();
+				next.runnable.run();
+				depth.decrementAndGet();
+				long cost = System.nanoTime() - t;
+				avgTaskNs = avgTaskNs == 0 ? cost : avgTaskNs * 0.9 + cost * 0.1;
+				ran++;
+			}
+			return ran;
+		}
+	}
+	
+	static class Node {
+		Node next;
+		final Runnable runnable;
+		
+		Node(Runnable runnable) {
+			this.runnable = runnable;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.Fernflower;
+import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
+import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.util.TextBuffer;
+import cn.breadnicecat.reciperenderer.utils.FernFlowerUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 21:33
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 模拟ClassWriter输出一个类:每个方法一个TextBuffer,写完再拼进类的TextBuffer,最后整体缩进一层
+ * <p>
+ * TextBuffer从ThreadLocal的DecompilerContext里取换行符和缩进,所以要在测量线程上建上下文
+ * <p>
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextBufferBenchmark {
+	private static final String[] STATEMENTS = {
+			"int var1 = this.width * this.height;",
+			"if (var1 > 0 && !this.started) {",
+			"return new LZWEncoder(this.width, this.height, this.indexedPixels, this.colorDepth);",
+			"}",
+			"for (int var2 = 0; var2 < var1; ++var2) {",
+			"this.out.write(this.colorTab[var2] & 255);",
+	};
+	
+	@Param({"64"})
+	public int methods;
+	@Param({"40"})
+	public int lines;
+	
+	private Fernflower fernflower;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		fernflower = new Fernflower((external, internal) -> null, null, FernFlowerUtils.OPTIONS, new IFernflowerLogger() {
+			@Override
+			public void writeMessage(String message, Severity severity) {
+			}
+			
+			@Override
+			public void writeMessage(String message, Severity severity, Throwable t) {
+			}
+		});
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		fernflower.clearContext();
+	}
+	
+	@Benchmark
+	public String writeClass() {
+		TextBuffer clazz = new TextBuffer(1024);
+		clazz.append("public class Sample {").appendLineSeparator();
+		for (int m = 0; m < methods; m++) {
+			TextBuffer method = new TextBuffer();
+			method.appendIndent(1).append("public void method").append(m).append("() {").appendLineSeparator();
+			for (int l = 0; l < lines; l++) {
+				method.appendIndent(2 + (l & 1)).append(STATEMENTS[(m + l) % STATEMENTS.length]).appendLineSeparator();
+			}
+			method.appendIndent(1).append('}').appendLineSeparator();
+			clazz.append(method);
+		}
+		clazz.append('}').appendLineSeparator();
+		clazz.enclose("// $FF: synthetic header", "// $FF: end");
+		return clazz.toString();
+	}
+	
+}
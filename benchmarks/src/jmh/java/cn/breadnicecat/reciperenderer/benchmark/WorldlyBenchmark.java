@@ -0,0 +1,97 @@
+package cn.breadnicecat.reciperenderer.benchmark;
+
+import cn.breadnicecat.reciperenderer.worldly.ChunkContainer;
+import cn.breadnicecat.reciperenderer.worldly.WorldlyContainer;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 21:10
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 世界扫描的两步:每个方块一次的{@link ChunkContainer#collect}和最后的{@link WorldlyContainer#merge}
+ * <p>
+ * 区块内容由固定种子生成,大致按高度分层(深板岩/石头/泥土/空气,矿石散布其中),不需要真正的世界
+ * <p>
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorldlyBenchmark {
+	private static final int MIN_Y = -64, HEIGHT = 384, COLUMNS = 16 * 16;
+	
+	@Param({"64"})
+	public int chunkCount;
+	
+	/**
+	 * [column][y-MIN_Y]
+	 */
+	private BlockState[][] chunk;
+	private List<ChunkContainer> filled;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		SharedConstants.tryDetectVersion();
+		Bootstrap.bootStrap();
+		BlockState[] ores = {
+				Blocks.COAL_ORE.defaultBlockState(), Blocks.IRON_ORE.defaultBlockState(),
+				Blocks.COPPER_ORE.defaultBlockState(), Blocks.GOLD_ORE.defaultBlockState(),
+				Blocks.DEEPSLATE_DIAMOND_ORE.defaultBlockState(), Blocks.DEEPSLATE_REDSTONE_ORE.defaultBlockState(),
+				Blocks.GRAVEL.defaultBlockState(), Blocks.ANDESITE.defaultBlockState(), Blocks.TUFF.defaultBlockState()
+		};
+		Random random = new Random(0x5EED);
+		chunk = new BlockState[COLUMNS][HEIGHT];
+		for (int c = 0; c < COLUMNS; c++) {
+			int surface = 62 + random.nextInt(8);
+			for (int i = 0; i < HEIGHT; i++) {
+				int y = MIN_Y + i;
+				BlockState state;
+				if (y == MIN_Y) state = Blocks.BEDROCK.defaultBlockState();
+				else if (y > surface) state = Blocks.AIR.defaultBlockState();
+				else if (y > surface - 4) state = Blocks.DIRT.defaultBlockState();
+				else if (random.nextInt(20) == 0) state = ores[random.nextInt(ores.length)];
+				else if (y < 0) state = Blocks.DEEPSLATE.defaultBlockState();
+				else state = Blocks.STONE.defaultBlockState();
+				chunk[c][i] = state;
+			}
+		}
+		WorldlyContainer container = new WorldlyContainer(null, chunkCount);
+		filled = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			filled.add(fill(container.subChunkContainer()));
+		}
+	}
+	
+	private ChunkContainer fill(ChunkContainer target) {
+		for (BlockState[] column : chunk) {
+			for (int i = 0; i < HEIGHT; i++) {
+				target.collect(MIN_Y + i, column[i]);
+			}
+		}
+		return target;
+	}
+	
+	/**
+	 * 一个区块(16*16*384次collect)
+	 */
+	@Benchmark
+	public ChunkContainer collect() {
+		return fill(new WorldlyContainer(null, 1).subChunkContainer());
+	}
+	
+	@Benchmark
+	public Object merge() {
+		return WorldlyContainer.merge(filled, BuiltInRegistries.BLOCK::getKey);
+	}
+}
@@ -0,0 +1,98 @@
+package cn.breadnicecat.reciperenderer.includes.AnimatedGifEncoder;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 21:18
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 动图编码的三段:量化(NeuQuant)、压缩(LZWEncoder)、整帧(AnimatedGifEncoder.addFrame,包含前两者)
+ * <p>
+ * 放在同一个包里是因为LZWEncoder是包内可见的,帧由固定种子生成,接近一个带噪点的物品图标
+ * <p>
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GifBenchmark {
+	private static final int FRAMES = 8;
+	
+	@Param({"128"})
+	public int size;
+	
+	private BufferedImage[] frames;
+	/**
+	 * 第一帧的BGR数据
+	 */
+	private byte[] pixels;
+	/**
+	 * 第一帧量化后的索引
+	 */
+	private byte[] indexed;
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(0x5EED);
+		frames = new BufferedImage[FRAMES];
+		for (int f = 0; f < FRAMES; f++) {
+			BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+			double c = (size - 1) / 2.0;
+			for (int y = 0; y < size; y++) {
+				for (int x = 0; x < size; x++) {
+					double d = Math.hypot(x - c, y - c) / c;
+					int r = d > 0.9 ? 0 : (int) (255 * (1 - d)) ^ (f * 16);
+					int g = (x * 255 / size + f * 20) & 0xFF;
+					int b = (y * 255 / size + random.nextInt(24)) & 0xFF;
+					image.setRGB(x, y, (r & 0xFF) << 16 | g << 8 | b);
+				}
+			}
+			frames[f] = image;
+		}
+		pixels = ((DataBufferByte) frames[0].getRaster().getDataBuffer()).getData().clone();
+		NeuQuant nq = new NeuQuant(pixels, pixels.length, 10);
+		nq.process();
+		indexed = new byte[pixels.length / 3];
+		for (int i = 0, k = 0; i < indexed.length; i++) {
+			indexed[i] = (byte) nq.map(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
+		}
+	}
+	
+	@Benchmark
+	public byte[] neuQuant() {
+		return new NeuQuant(pixels, pixels.length, 10).process();
+	}
+	
+	@Benchmark
+	public int lzwEncode() throws IOException {
+		out.reset();
+		new LZWEncoder(size, size, indexed, 8).encode(out);
+		return out.size();
+	}
+	
+	/**
+	 * 整个动图(FRAMES帧)
+	 */
+	@Benchmark
+	public int addFrame() {
+		out.reset();
+		AnimatedGifEncoder encoder = new AnimatedGifEncoder();
+		encoder.start(out);
+		encoder.setRepeat(0);
+		encoder.setDelay(50);
+		for (BufferedImage frame : frames) {
+			encoder.addFrame(frame);
+		}
+		encoder.finish();
+		return out.size();
+	}
+}
@@ -0,0 +1,135 @@
+package cn.breadnicecat.reciperenderer;
+
+import cn.breadnicecat.reciperenderer.render.RenderBudget;
+import cn.breadnicecat.reciperenderer.utils.RTimer;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.*;
+
+/**
+ * Created in 2026/10/17 16:41
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 一次导出多个mod: 注册表和创造物品栏只遍历一次,按命名空间分给各自的{@link Exporter},每个mod仍然各写一个output.zip
+ * <p>
+ * 所有Exporter共用同一个渲染队列,同时写入的mod数由{@link #PARALLEL}限制,
+ * 这样一个mod在反编译/压缩收尾时渲染队列里还有别的mod的图标
+ * <p>
+ **/
+public class BatchExporter {
+	public static BatchExporter current;
+	/**
+	 * 同时处于写入阶段的mod数
+	 */
+	public static int PARALLEL = Math.max(1, Integer.getInteger("reciperenderer.batchParallel", 2));
+	
+	final Map<String, Exporter> exporters = new TreeMap<>();
+	RTimer startTime;
+	
+	/**
+	 * @param modids 不存在的mod会被忽略
+	 */
+	public BatchExporter(Collection<String> modids) {
+		for (String modid : modids) {
+			if (allMods.containsKey(modid)) exporters.put(modid, new Exporter(modid));
+			else PLAYER_LOGGER.warn("未找到mod: " + modid);
+		}
+	}
+	
+	/**
+	 * @return 完成时给出{@link #run()}的汇总,遭遇致命错误时异常完成
+	 */
+	public CompletableFuture<JsonObject> runAsync() {
+		if (exporters.isEmpty()) throw new RuntimeException("没有需要导出的mod");
+		if (current != null || Exporter.current != null) throw new RuntimeException("已经有一个程序在导出了");
+		current = this;
+		RenderBudget.resetStats();
+		CompletableFuture<JsonObject> future = CompletableFuture.supplyAsync(this::run, EXECUTOR);
+		PLAYER_LOGGER.info("异步批量导出任务创建完成,共" + exporters.size() + "个mod");
+		return future;
+	}
+	
+	/**
+	 * <pre>{
+	 *     "minecraft_version": ...,
+	 *     "mod_version": ...,
+	 *     "total_ms": 整数,
+	 *     "collect_ms": 整数，共用的收集阶段耗时,
+	 *     "mods": {
+	 *         modid: {"ok": 布尔值, "ms": 整数，从进入写入阶段开始, "bytes": 整数，output.zip大小},
+	 *         ...
+	 *     },
+	 *     "failed": [modid...],
+	 *     "render_budget": {@link RenderBudget#toJson()}
+	 * }</pre>
+	 */
+	private JsonObject run() {
+		try {
+			startTime = new RTimer();
+			exporters.values().forEach(Exporter::begin);
+			PLAYER_LOGGER.info("开始收集条目");
+			Exporter.collect(exporters);
+			long collectMs = startTime.get();
+			
+			Semaphore slots = new Semaphore(PARALLEL);
+			List<String> failed = Collections.synchronizedList(new ArrayList<>());
+			Map<String, JsonObject> results = new ConcurrentSkipListMap<>();
+			List<CompletableFuture<Void>> futures = new ArrayList<>(exporters.size());
+			for (Exporter exporter : exporters.values()) {
+				slots.acquireUninterruptibly();
+				futures.add(CompletableFuture.runAsync(() -> {
+					RTimer t = new RTimer();
+					boolean ok = false;
+					try {
+						ok = exporter.export();
+					} catch (Throwable ignored) {
+						//export自己已经打了日志
+					} finally {
+						slots.release();
+						if (!ok) failed.add(exporter.modid);
+						JsonObject result = new JsonObject();
+						result.addProperty("ok", ok);
+						result.addProperty("ms", t.get());
+						result.addProperty("bytes", exporter.outputfile.length());
+						results.put(exporter.modid, result);
+					}
+				}, EXECUTOR));
+			}
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+			
+			PLAYER_LOGGER.info("批量导出完成,共" + exporters.size() + "个mod,耗时" + startTime.getStringMs());
+			if (!failed.isEmpty()) {
+				PLAYER_LOGGER.error("以下mod导出失败: " + failed);
+			}
+			open(Exporter.ROOT_DIR);
+			
+			JsonObject summary = new JsonObject();
+			summary.addProperty("minecraft_version", mcVersion);
+			summary.addProperty("mod_version", modVersion);
+			summary.addProperty("total_ms", startTime.get());
+			summary.addProperty("collect_ms", collectMs);
+			JsonObject mods = new JsonObject();
+			results.forEach(mods::add);
+			summary.add("mods", mods);
+			JsonArray failedArray = new JsonArray();
+			failed.stream().sorted().forEach(failedArray::add);
+			summary.add("failed", failedArray);
+			summary.add("render_budget", RenderBudget.toJson());
+			return summary;
+		} catch (Throwable e) {
+			LOGGER.error("批量导出遭遇致命错误", e);
+			throw new RuntimeException(e.getMessage(), e);
+		} finally {
+			exporters.clear();
+			current = null;
+		}
+	}
+}
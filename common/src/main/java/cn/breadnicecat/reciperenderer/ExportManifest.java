@@ -0,0 +1,126 @@
+package cn.breadnicecat.reciperenderer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.GSON;
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+
+/**
+ * Created in 2026/10/17 15:30
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 增量导出用的清单,保存在rr_export/modid/manifest.json
+ * <p>
+ * 记录每个条目的指纹以及它上一次导出时的json行和引用的附件,指纹相同的条目下一次导出时直接复用,不再渲染和序列化;
+ * 配方序列化类记录类字节码的hash,没变的直接从上一次的压缩包里拷贝反编译结果
+ * <p>
+ **/
+public class ExportManifest {
+	public static final String FILE_NAME = "manifest.json";
+	/**
+	 * 2: json改为store写入的完整结构(见StorableV2#toLegacy)
+	 */
+	private static final int FORMAT = 2;
+	
+	/**
+	 * 影响导出结果的全局设置(RR版本,图标尺寸等),不同时整个清单作废
+	 */
+	final String settings;
+	/**
+	 * fingerprint : record
+	 */
+	final Map<String, Record> entries = new HashMap<>();
+	/**
+	 * recipe type : class hash
+	 */
+	final Map<String, String> recipeTypes = new TreeMap<>();
+	
+	public ExportManifest(String settings) {
+		this.settings = settings;
+	}
+	
+	/**
+	 * @param json  上一次store的结果(转换为旧格式之前)
+	 * @param refs  json中引用的附件路径(不带#)
+	 */
+	public record Record(int version, String json, List<String> refs) {
+		public static Record of(int version, JsonObject object) {
+			List<String> refs = new ArrayList<>();
+			collectRefs(object, refs);
+			return new Record(version, object.toString(), refs);
+		}
+		
+		private static void collectRefs(JsonElement e, List<String> refs) {
+			if (e.isJsonObject()) {
+				e.getAsJsonObject().entrySet().forEach(i -> collectRefs(i.getValue(), refs));
+			} else if (e.isJsonArray()) {
+				e.getAsJsonArray().forEach(i -> collectRefs(i, refs));
+			} else if (e.isJsonPrimitive() && e.getAsJsonPrimitive().isString()) {
+				String s = e.getAsString();
+				if (s.startsWith("#attachment/")) refs.add(s.substring(1));
+			}
+		}
+	}
+	
+	/**
+	 * @return 文件不存在,损坏或者设置不同时返回null
+	 */
+	public static @Nullable ExportManifest load(File file, String settings) {
+		if (!file.isFile()) return null;
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			JsonObject root = GSON.fromJson(reader, JsonObject.class);
+			if (root.get("format").getAsInt() != FORMAT || !settings.equals(root.get("settings").getAsString())) {
+				LOGGER.info("导出设置已变化,不使用增量导出");
+				return null;
+			}
+			ExportManifest manifest = new ExportManifest(settings);
+			root.getAsJsonObject("entries").entrySet().forEach(i -> {
+				JsonObject o = i.getValue().getAsJsonObject();
+				List<String> refs = new ArrayList<>();
+				o.getAsJsonArray("refs").forEach(r -> refs.add(r.getAsString()));
+				manifest.entries.put(i.getKey(), new Record(o.get("v").getAsInt(), o.get("json").getAsString(), refs));
+			});
+			root.getAsJsonObject("recipe_types").entrySet().forEach(i -> manifest.recipeTypes.put(i.getKey(), i.getValue().getAsString()));
+			return manifest;
+		} catch (Exception e) {
+			LOGGER.warn("无法读取导出清单" + file, e);
+			return null;
+		}
+	}
+	
+	public void save(File file) throws IOException {
+		JsonObject root = new JsonObject();
+		root.addProperty("format", FORMAT);
+		root.addProperty("settings", settings);
+		JsonObject es = new JsonObject();
+		entries.forEach((fp, r) -> {
+			JsonObject o = new JsonObject();
+			o.addProperty("v", r.version());
+			o.addProperty("json", r.json());
+			JsonArray refs = new JsonArray();
+			r.refs().forEach(refs::add);
+			o.add("refs", refs);
+			es.add(fp, o);
+		});
+		root.add("entries", es);
+		JsonObject rt = new JsonObject();
+		recipeTypes.forEach(rt::addProperty);
+		root.add("recipe_types", rt);
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			GSON.toJson(root, writer);
+		}
+	}
+}
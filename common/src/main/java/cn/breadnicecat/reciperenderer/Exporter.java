@@ -2,16 +2,21 @@ package cn.breadnicecat.reciperenderer;
 
 import cn.breadnicecat.reciperenderer.entry.*;
 import cn.breadnicecat.reciperenderer.gui.ExportFrame;
+import cn.breadnicecat.reciperenderer.render.AtlasBatchRenderer;
+import cn.breadnicecat.reciperenderer.render.EntityPool;
+import cn.breadnicecat.reciperenderer.render.IconScaler;
 import cn.breadnicecat.reciperenderer.render.IconWrapper;
+import cn.breadnicecat.reciperenderer.render.PboReadback;
+import cn.breadnicecat.reciperenderer.render.RenderBudget;
+import cn.breadnicecat.reciperenderer.render.RenderIdentity;
 import cn.breadnicecat.reciperenderer.utils.*;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.mojang.datafixers.util.Pair;
 import net.minecraft.client.Minecraft;
-import net.minecraft.client.resources.language.ClientLanguage;
 import net.minecraft.client.server.IntegratedServer;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.core.registries.Registries;
-import net.minecraft.locale.Language;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.packs.resources.Resource;
@@ -22,15 +27,22 @@ import net.minecraft.world.entity.Mob;
 import net.minecraft.world.flag.FeatureFlags;
 import net.minecraft.world.item.CreativeModeTab;
 import net.minecraft.world.item.CreativeModeTabs;
+import net.minecraft.world.item.crafting.RecipeSerializer;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipFile;
 
 import static cn.breadnicecat.reciperenderer.RecipeRenderer.*;
 import static cn.breadnicecat.reciperenderer.mixin.MixinCreativeModeTabs.*;
@@ -53,10 +65,93 @@ public class Exporter {
 	public static Exporter current;
 	public static File ROOT_DIR = new File(ExportFrame.debug ? new File("build") : instance.gameDirectory, "rr_export");
 	public static File WORLDLY = new File(ROOT_DIR, "worldly");
+	/**
+	 * 流式导出时同时处于渲染/等待写入状态的条目数上限,内存占用只与它有关,与mod大小无关
+	 */
+	public static int STREAM_WINDOW = Integer.getInteger("reciperenderer.streamWindow", 32);
+	/**
+	 * 窗口已空却仍然没有渲染预算时最多等待的时间,超时后不再等待(防止没有归还的预算卡死导出)
+	 */
+	public static long BUDGET_TIMEOUT_MS = Long.getLong("reciperenderer.budgetTimeoutMs", 60_000L);
+	/**
+	 * 只渲染128的图标,其它尺寸都在worker线程上由它缩放得到
+	 */
+	public static boolean SINGLE_RENDER = Boolean.getBoolean("reciperenderer.singleRender");
+	public static IconScaler.Filter SCALE_FILTER = parseFilter(System.getProperty("reciperenderer.scaleFilter", "BOX"));
+	/**
+	 * 附件去重索引最多记住的条目数
+	 */
+	public static int DEDUP_INDEX_SIZE = Integer.getInteger("reciperenderer.dedupIndexSize", 8192);
+	/**
+	 * 根据上一次导出的清单只重新导出变化了的条目
+	 *
+	 * @see ExportManifest
+	 */
+	public static boolean INCREMENTAL = Boolean.parseBoolean(System.getProperty("reciperenderer.incremental", "true"));
+	/**
+	 * 导出的语言,en_us和zh_cn总是会导出,其它的写在"lang"里(例如"ja_jp,ko_kr")
+	 */
+	public static List<String> LOCALES = Stream.concat(Stream.of("en_us", "zh_cn"), Arrays.stream(System.getProperty("reciperenderer.locales", "").split(",")))
+			.map(i -> i.trim().toLowerCase(Locale.ROOT))
+			.filter(i -> !i.isEmpty())
+			.distinct()
+			.toList();
+	private static final int LANG_CHUNK = 256;
+	/**
+	 * 每个渲染线程任务计算多少个物品的{@link RenderIdentity}
+	 */
+	private static final int IDENTITY_CHUNK = 32;
+	/**
+	 * 在每个xxx.jsons旁边再写一份二进制表xxx.rrb
+	 *
+	 * @see BinaryTableWriter
+	 */
+	public static boolean BINARY = Boolean.parseBoolean(System.getProperty("reciperenderer.binary", "true"));
+	/**
+	 * 额外导出的图标尺寸(例如"16,64"),总是由128的图标缩放得到
+	 */
+	public static int[] EXTRA_ICON_SIZES = parseSizes(System.getProperty("reciperenderer.extraIconSizes", ""));
+	
+	/**
+	 * 写错了不能让静态初始化失败(整个Exporter都会加载不了),退回BOX
+	 */
+	private static IconScaler.Filter parseFilter(String value) {
+		try {
+			return IconScaler.Filter.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOGGER.warn("未知的reciperenderer.scaleFilter:{},可用的有{},使用BOX", value, Arrays.toString(IconScaler.Filter.values()));
+			return IconScaler.Filter.BOX;
+		}
+	}
+	
+	/**
+	 * 不是正整数的尺寸直接丢掉
+	 */
+	private static int[] parseSizes(String value) {
+		return Arrays.stream(value.split(","))
+				.map(String::trim)
+				.filter(i -> !i.isEmpty())
+				.mapToInt(i -> {
+					try {
+						int size = Integer.parseInt(i);
+						if (size > 0) return size;
+					} catch (NumberFormatException ignored) {
+					}
+					LOGGER.warn("忽略reciperenderer.extraIconSizes中无效的尺寸:{}", i);
+					return -1;
+				})
+				.filter(i -> i > 0)
+				.toArray();
+	}
 	
 	final String modid;
 	
 	RTimer startTime;
+	long startNanos;
+	/**
+	 * 导出完成时写入压缩包的metrics.json
+	 */
+	final SpanProfiler profiler = new SpanProfiler();
 	/**
 	 * .minecraft/rr_export/modid
 	 */
@@ -65,6 +160,18 @@ public class Exporter {
 	 * $root/output.zip
 	 */
 	final File outputfile;
+	/**
+	 * $root/manifest.json
+	 */
+	final File manifestFile;
+	/**
+	 * 上一次的output.zip,导出期间从这里拷贝没有变化的条目
+	 */
+	final File previousFile;
+	
+	@Nullable ExportManifest previous;
+	@Nullable ZipFile previousZip;
+	ExportManifest manifest;
 	
 	List<ItemEntry> items = new LinkedList<>();
 	List<EntityEntry> entities = new LinkedList<>();
@@ -72,7 +179,10 @@ public class Exporter {
 	List<EffectEntry> effects = new LinkedList<>();
 	List<BiomeEntry> biomes = new LinkedList<>();
 	List<DimensionEntry> dimensions = new LinkedList<>();
-	List<JsonObject> recipes = new LinkedList<>();
+	/**
+	 * 只记录配方文件,写入时才解析
+	 */
+	Map<ResourceLocation, Resource> recipes = new TreeMap<>();
 	Map<String, Class<?>> recipeTypes = new TreeMap<>();
 	
 	List<List<? extends LocalizableV2>> localizable = List.of(items, entities, enchantments, effects);
@@ -82,71 +192,139 @@ public class Exporter {
 		
 		this.modRoot = new File(ROOT_DIR, modid);
 		this.outputfile = new File(modRoot, "output.zip");
+		this.manifestFile = new File(modRoot, ExportManifest.FILE_NAME);
+		this.previousFile = new File(modRoot, "output.prev.zip");
 	}
 	
 	public void runAsync() {
-		if (current != null) throw new RuntimeException("已经有一个程序在导出了");
+		if (current != null || BatchExporter.current != null) throw new RuntimeException("已经有一个程序在导出了");
 		current = this;
+		RenderBudget.resetStats();
 		EXECUTOR.submit(this::run);
 		PLAYER_LOGGER.info("异步导出任务创建完成");
 	}
 	
 	private void run() {
+		try {
+			begin();
+			PLAYER_LOGGER.info("开始收集条目");
+			collect(Map.of(modid, this));
+			if (export()) open(modRoot);
+		} finally {
+			current = null;
+		}
+	}
+	
+	void begin() {
 		if (startTime != null) {
 			throw new RuntimeException("重复使用的Exporter");
 		}
 		this.startTime = new RTimer();
+		this.startNanos = System.nanoTime();
+	}
+	
+	/**
+	 * 遍历一次注册表和创造物品栏,按命名空间把条目分给对应的Exporter
+	 *
+	 * @param targets modid : exporter
+	 */
+	static void collect(Map<String, Exporter> targets) {
+		Collection<Exporter> all = targets.values();
+		tryRun("导出物品时遇到致命错误", () -> timed(all, "collect/item", () -> _collectItem(targets)), () -> all.forEach(e -> e.items.clear()));
+		tryRun("导出实体时遇到致命错误", () -> timed(all, "collect/entity", () -> _collectEntity(targets)), () -> all.forEach(e -> e.entities.clear()));
+		tryRun("导出配方时遇到致命错误", () -> timed(all, "collect/recipe", () -> _collectRecipe(targets)), () -> all.forEach(e -> {
+			e.recipes.clear();
+			e.recipeTypes.clear();
+		}));
+		tryRun("导出时药水效果时遇到致命错误", () -> timed(all, "collect/effect", () -> _collectEffect(targets)), () -> all.forEach(e -> e.effects.clear()));
+		tryRun("导出附魔时遇到致命错误", () -> timed(all, "collect/enchantment", () -> _collectEnchant(targets)), () -> all.forEach(e -> e.enchantments.clear()));
+		tryRun("导出生物群系时遇到致命错误", () -> timed(all, "collect/biome", () -> _collectBiome(targets)), () -> all.forEach(e -> e.biomes.clear()));
+		tryRun("导出维度时遇到致命错误", () -> timed(all, "collect/dimension", () -> _collectDim(targets)), () -> all.forEach(e -> e.dimensions.clear()));
+		tryRun("解析语言时遇到致命错误", () -> timed(all, "collect/lang", () -> _collectLang(all)), null);
+	}
+	
+	/**
+	 * 批量导出时收集是共用的,耗时同样记到每个Exporter上
+	 */
+	private static void timed(Collection<Exporter> targets, String path, Runnable_WithException<Exception> run) throws Exception {
+		long start = System.nanoTime();
+		try {
+			run.run();
+		} finally {
+			long nanos = System.nanoTime() - start;
+			targets.forEach(e -> e.profiler.record(path, nanos));
+		}
+	}
+	
+	/**
+	 * 条目收集完之后写入output.zip
+	 *
+	 * @return 是否成功
+	 */
+	boolean export() {
 		PLAYER_LOGGER.info("开始初始化");
 		modRoot.mkdirs();
-		try (var outputs_z = new ZipOutputStream(new FileOutputStream(outputfile))) {
+		String settings = MOD_NAME + "@" + modVersion + "|" + mcVersion + "|" + SINGLE_RENDER + "|" + SCALE_FILTER + "|" + Arrays.toString(EXTRA_ICON_SIZES);
+		manifest = new ExportManifest(settings);
+		try {
+			openPrevious(settings);
+		} catch (IOException e) {
+			LOGGER.warn("无法打开上一次的导出结果,进行完整导出", e);
+			closePrevious();
+		}
+		try (var outputs_z = new ParallelZipWriter(new FileOutputStream(outputfile), EXECUTOR)) {
 			outputs_z.setLevel(9);
+			outputs_z.setProfiler(profiler);
 			outputs_z.setComment("Exported by " + MOD_NAME + " v" + modVersion
 					+ ", \nTargetMod " + modid + "@" + getVersion(modid)
 					+ ", \nEnvironment Minecraft@" + mcVersion + "+" + platform.getName() + "@" + platform.getLoaderVersion());
 			PLAYER_LOGGER.info("开始导出" + modid);
 			
-			PLAYER_LOGGER.info("开始收集条目");
-			
-			tryRun("导出物品时遇到致命错误", this::_collectItem, items::clear);
-			tryRun("导出实体时遇到致命错误", this::_collectEntity, entities::clear);
-			tryRun("导出配方时遇到致命错误", this::_collectRecipe, () -> {
-				recipes.clear();
-				recipeTypes.clear();
-			});
-			tryRun("导出时药水效果时遇到致命错误", this::_collectEffect, effects::clear);
-			tryRun("导出附魔时遇到致命错误", this::_collectEnchant, enchantments::clear);
-			tryRun("导出生物群系时遇到致命错误", this::_collectBiome, biomes::clear);
-			tryRun("导出维度时遇到致命错误", this::_collectDim, dimensions::clear);
-			_collectLang();
-			
-			PLAYER_LOGGER.info("向客户端发送渲染任务");
-			items.forEach(i -> {
-				scheduleRender(i.id.getPath() + "_ico32", i.ico32);
-				scheduleRender(i.id.getPath() + "_ico128", i.ico128);
-			});
-			entities.forEach(i -> {
-				scheduleRender(i.id.getPath() + "_ico32", i.ico32);
-				scheduleRender(i.id.getPath() + "_ico128", i.ico128);
-			});
-			
 			PLAYER_LOGGER.info("开始写入数据");
-			if (tryRun("写入数据时发生致命错误", () -> write(outputs_z), null)) return;
+			if (tryRun("写入数据时发生致命错误", () -> write(outputs_z), null)) return false;
+			tryRun("保存导出清单失败", () -> manifest.save(manifestFile), null);
 			
-			PLAYER_LOGGER.info("导出完成,共耗时" + startTime.getStringMs());
-			open(modRoot);
+			PLAYER_LOGGER.info("导出" + modid + "完成,共耗时" + startTime.getStringMs());
+			return true;
 		} catch (Throwable e) {
-			validator.set(false);
 			LOGGER.error("遭遇致命错误", e);
 			throw new RuntimeException(e.getMessage(), e);
 		} finally {
-			current = null;
+			validator.set(false);
+			closePrevious();
+		}
+	}
+	
+	/**
+	 * 清单有效时把上一次的output.zip挪开以便从中拷贝,清单本身先删掉,导出成功后再写入新的
+	 */
+	private void openPrevious(String settings) throws IOException {
+		if (!INCREMENTAL) return;
+		ExportManifest loaded = ExportManifest.load(manifestFile, settings);
+		manifestFile.delete();
+		if (loaded == null || !outputfile.isFile()) return;
+		Files.move(outputfile.toPath(), previousFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		previousZip = new ZipFile(previousFile);
+		previous = loaded;
+		PLAYER_LOGGER.info("找到上一次的导出清单,只导出有变化的条目");
+	}
+	
+	private void closePrevious() {
+		previous = null;
+		if (previousZip != null) {
+			try {
+				previousZip.close();
+			} catch (IOException e) {
+				LOGGER.warn("关闭" + previousFile + "失败", e);
+			}
+			previousZip = null;
 		}
-		validator.set(false);
+		previousFile.delete();
 	}
 	
 	//========================================
 	
-	private void write(ZipOutputStream output) throws IOException {
+	private void write(ParallelZipWriter output) throws IOException {
 		StringJoiner joiner = new StringJoiner(", ", "共导出", ".");
 		if (!effects.isEmpty()) {
 			joiner.add(effects.size() + "个药水效果");
@@ -169,59 +347,76 @@ public class Exporter {
 			write("biome", output, "biome.jsons", biomes);
 		}
 		if (!recipes.isEmpty()) {
-			joiner.add(recipes.size() + "个配方(涉及" + recipeTypes.size() + "种类型)");
 			PLAYER_LOGGER.info("写入配方");
-			writeJson(output, "recipe.jsons", recipes, null);
-			PLAYER_LOGGER.info("反编译配方序列化类");
-			HashMap<Class<?>, byte[]> cache = new HashMap<>();
-			for (Map.Entry<String, Class<?>> entry : recipeTypes.entrySet()) {
-				String k = entry.getKey();
-				output.putNextEntry(newZipEntry("recipe_types/" + k + ".java"));
-				try {
-					Class<?> clz = entry.getValue();
-					byte[] bytes = cache.get(clz);
-					if (bytes == null) {
-						LOGGER.info("decompiling...");
-						bytes = FernFlowerUtils.decompile(clz).getBytes();
-						cache.put(clz, bytes);
-					} else {
-						LOGGER.info("decompile SKIP");
-					}
-					LOGGER.info("decompiled {}", clz.getName());
-					output.write(bytes);
-				} catch (Throwable e) {
-					LOGGER.error("反编译" + k + "失败", e);
-				} finally {
-					output.closeEntry();
-				}
-			}
-			
+			int count = writeRecipes(output);
+			joiner.add(count + "个配方(涉及" + recipeTypes.size() + "种类型)");
 		}
+		//反编译与下面的渲染同时进行,最后再写入
+		Map<Class<?>, CompletableFuture<byte[]>> decompiling = decompileRecipeTypes();
 		
 		if (!items.isEmpty()) {
 			joiner.add(items.size() + "个物品");
 			PLAYER_LOGGER.info("写入物品");
-			write("item", output, "item.jsons", items);
+			write("item", output, "item.jsons", items, batch -> {
+				List<IconWrapper> icons = new ArrayList<>(batch.size() * 2);
+				batch.forEach(i -> {
+					setProfiler(i.ico32, i.ico128, i.extraIcons);
+					icons.add(i.ico32);
+					icons.add(i.ico128);
+				});
+				scheduleBatchRender(icons);
+			});
 		}
 		
 		if (!entities.isEmpty()) {
 			joiner.add(entities.size() + "个实体");
 			PLAYER_LOGGER.info("写入实体");
-			write("entity", output, "entity.jsons", entities);
+			write("entity", output, "entity.jsons", entities, batch -> batch.forEach(i -> {
+				setProfiler(i.ico32, i.ico128, i.extraIcons);
+				scheduleRender(i.id.getPath() + "_ico32", i.ico32);
+				scheduleRender(i.id.getPath() + "_ico128", i.ico128);
+			}));
 		}
+		writeRecipeTypes(output, decompiling);
 		PLAYER_LOGGER.info(joiner.toString());
+		if (reusedCount > 0) {
+			PLAYER_LOGGER.info("其中" + reusedCount + "个条目没有变化,直接复用了上一次的结果");
+		}
+		if (attachments.getHits() > 0) {
+			PLAYER_LOGGER.info("重复附件" + attachments.getHits() + "个,节省" + attachments.getSavedBytes() / 1024 + "KB");
+		}
+		profiler.record("export", System.nanoTime() - startNanos);
+		JsonObject metrics = profiler.toJson();
+		metrics.add("render_budget", RenderBudget.toJson());
+		metrics.add("render_lanes", getTasks().toJson());
+		metrics.add("entity_pool", EntityPool.toJson());
+		metrics.add("pbo", PboReadback.toJson());
+		output.write(entry("metrics.json"), GSON.toJson(metrics).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private void setProfiler(IconWrapper ico32, IconWrapper ico128, Map<Integer, IconWrapper> extra) {
+		ico32.setProfiler(profiler);
+		ico128.setProfiler(profiler);
+		extra.values().forEach(i -> i.setProfiler(profiler));
 	}
 	
 	
 	//========================================
 	private void scheduleRender(@Nullable String name, IconWrapper ico) {
-		RecipeRenderer.hookRenderer(() -> {
+		if (ico.isDerived()) return;
+		long scheduled = System.nanoTime();
+		RecipeRenderer.hookRenderer(LaneScheduler.Lane.BULK, () -> {
 			if (validator.get()) {
 				if (name != null) LOGGER.info("开始渲染：{},wrapId={}", name, ico.wrapId);
 				try {
+					long start = System.nanoTime();
+					profiler.record("render/queue", start - scheduled);
 					instance.getProfiler().push("Render Exporter Icon");
-					ico.render();
+					ico.renderAsync();
 					instance.getProfiler().pop();
+					profiler.record("render/submit", System.nanoTime() - start);
+					//从开始绘制到回读完成
+					ico.getFuture().whenComplete((r, e) -> profiler.record("render/readback", System.nanoTime() - start));
 				} catch (Exception e) {
 					LOGGER.error(name + "渲染失败,wrapId=" + ico.wrapId, e);
 				}
@@ -231,7 +426,31 @@ public class Exporter {
 		});
 	}
 	
-	private void _collectItem() {
+	/**
+	 * 能合批的图标会被画进同一张图集里
+	 *
+	 * @see AtlasBatchRenderer
+	 */
+	private void scheduleBatchRender(List<IconWrapper> icons) {
+		long scheduled = System.nanoTime();
+		RecipeRenderer.hookRenderer(LaneScheduler.Lane.BULK, () -> {
+			if (validator.get()) {
+				LOGGER.info("开始合批渲染：{}个图标", icons.size());
+				long start = System.nanoTime();
+				profiler.record("render/queue", start - scheduled);
+				instance.getProfiler().push("Render Exporter Icon Batch");
+				AtlasBatchRenderer.renderAsync(icons);
+				instance.getProfiler().pop();
+				profiler.record("render/atlas_submit", System.nanoTime() - start);
+				CompletableFuture.allOf(icons.stream().map(IconWrapper::getFuture).toArray(CompletableFuture[]::new))
+						.whenComplete((r, e) -> profiler.record("render/atlas_readback", System.nanoTime() - start));
+			} else {
+				LOGGER.warn("渲染失败:无效的会话,共{}个图标", icons.size());
+			}
+		});
+	}
+	
+	private static void _collectItem(Map<String, Exporter> targets) {
 		PLAYER_LOGGER.info("开始收集物品");
 		CreativeModeTabs.tryRebuildTabContents(FeatureFlags.REGISTRY.allFlags(), true, instance.level.registryAccess());
 		HashMap<ItemState, ItemEntry> holders = new HashMap<>();
@@ -243,16 +462,17 @@ public class Exporter {
 				})
 				.forEach(tabs -> tabs.getSecond().getDisplayItems().stream()
 						.map(i -> Pair.of(BuiltInRegistries.ITEM.getKey(i.getItem()), new ItemState(i)))
-						.filter(p -> p.getFirst().getNamespace().equals(modid))
+						.filter(p -> targets.containsKey(p.getFirst().getNamespace()))
 						.forEach(i -> {
 							ResourceLocation location = i.getFirst();
 							holders.computeIfAbsent(i.getSecond(), (state) -> {
 								LOGGER.info(location.toString());
 								ItemEntry e = new ItemEntry(location, state);
-								items.add(e);
+								targets.get(location.getNamespace()).items.add(e);
 								return e;
 							}).tabs.add(tabs.getSecond());
 						}));
+		if (INCREMENTAL) _computeItemIdentity(new ArrayList<>(holders.values()));
 		//从注册表拿东西可能会拿不到带nbt的东西
 //		BuiltInRegistries.ITEM.entrySet().stream()
 //				.filter(i -> i.getKey().location().getNamespace().equals(modid))
@@ -265,97 +485,131 @@ public class Exporter {
 //				});
 	}
 	
-	private void _collectEntity() {
+	/**
+	 * 模型只能在渲染线程上取,分块挂到{@link LaneScheduler.Lane#BULK}上避免一帧卡太久;贴图hash回到当前线程算
+	 * <p>
+	 * 失败的物品没有指纹,只是不参与增量导出
+	 */
+	private static void _computeItemIdentity(List<ItemEntry> items) {
+		List<CompletableFuture<List<RenderIdentity.ItemModel>>> futures = new ArrayList<>();
+		for (int i = 0; i < items.size(); i += IDENTITY_CHUNK) {
+			List<ItemEntry> part = items.subList(i, Math.min(items.size(), i + IDENTITY_CHUNK));
+			CompletableFuture<List<RenderIdentity.ItemModel>> f = new CompletableFuture<>();
+			RecipeRenderer.hookRenderer(LaneScheduler.Lane.BULK, () -> {
+				try {
+					f.complete(part.stream().map(e -> RenderIdentity.item(e.stack)).toList());
+				} catch (Throwable e) {
+					f.completeExceptionally(e);
+				}
+			});
+			futures.add(f);
+		}
+		Map<ResourceLocation, String> textures = new HashMap<>();
+		for (int c = 0; c < futures.size(); c++) {
+			List<ItemEntry> part = items.subList(c * IDENTITY_CHUNK, Math.min(items.size(), (c + 1) * IDENTITY_CHUNK));
+			try {
+				List<RenderIdentity.ItemModel> models = futures.get(c).join();
+				for (int j = 0; j < part.size(); j++) {
+					RenderIdentity.ItemModel model = models.get(j);
+					part.get(j).renderIdentity = model == null ? null : model.identity(textures);
+				}
+			} catch (Exception e) {
+				LOGGER.warn("计算物品的渲染指纹失败,这些物品会重新渲染:" + part.get(0).id + "等" + part.size() + "个", e);
+			}
+		}
+	}
+	
+	private static void _collectEntity(Map<String, Exporter> targets) {
 		PLAYER_LOGGER.info("开始获取实体");
 		BuiltInRegistries.ENTITY_TYPE.entrySet().stream()
-				.filter(i -> i.getKey().location().getNamespace().equals(modid))
+				.filter(i -> targets.containsKey(i.getKey().location().getNamespace()))
 				.forEach(i -> {
 					ResourceLocation location = i.getKey().location();
 					LOGGER.info(location.toString());
+					//临时实体只用来判断类型和算指纹,马上丢弃,渲染时再由EntityPool创建
 					Entity entity = i.getValue().create(instance.level);
-					if (entity instanceof Mob mob) {
-						EntityEntry entry = new EntityEntry(location, mob);
-						entities.add(entry);
+					if (entity == null) return;
+					try {
+						if (entity instanceof Mob mob) {
+							EntityEntry entry = new EntityEntry(location, mob.getType(), RenderIdentity.entity(mob));
+							targets.get(location.getNamespace()).entities.add(entry);
+						}
+					} finally {
+						entity.discard();
 					}
 				});
 		
 	}
 	
-	private void _collectLang() {
+	/**
+	 * 语言表来自{@link LanguageCache},不修改游戏当前语言,所有条目分块在{@link RecipeRenderer#EXECUTOR}上并行解析
+	 */
+	private static void _collectLang(Collection<Exporter> targets) {
 		PLAYER_LOGGER.info("开始解析语言");
-		ClientLanguage zh = ClientLanguage.loadFrom(instance.getResourceManager(), List.of("en_us", "zh_cn"), false);
-		ClientLanguage en = ClientLanguage.loadFrom(instance.getResourceManager(), List.of("en_us"), false);
-		Language rawl = Language.getInstance();
-		for (List<? extends LocalizableV2> s : localizable) {
-			Language.inject(en);
-			for (LocalizableV2 localizable : s) {
-				localizable.localizeEn();
-			}
-			Language.inject(zh);
-			for (LocalizableV2 localizable : s) {
-				localizable.localizeZh();
-			}
+		List<Localizer> localizers = LOCALES.stream()
+				.map(l -> CompletableFuture.supplyAsync(() -> LanguageCache.localizer(l), EXECUTOR))
+				.toList().stream()
+				.map(CompletableFuture::join)
+				.toList();
+		List<LocalizableV2> all = new ArrayList<>();
+		targets.forEach(e -> e.localizable.forEach(all::addAll));
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < all.size(); i += LANG_CHUNK) {
+			List<LocalizableV2> part = all.subList(i, Math.min(all.size(), i + LANG_CHUNK));
+			futures.add(CompletableFuture.runAsync(() -> part.forEach(e -> localizers.forEach(l -> e.localize(l.locale, l))), EXECUTOR));
 		}
-		Language.inject(rawl);
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
 	}
 	
-	private void _collectRecipe() throws IOException {
+	private static void _collectRecipe(Map<String, Exporter> targets) {
 		PLAYER_LOGGER.info("开始获取配方");
 		ResourceManager data = Objects.requireNonNull(instance.getSingleplayerServer()).getResourceManager();
-		Map<ResourceLocation, Resource> listed = data.listResources("recipes",
-				t -> t.getNamespace().equals(modid) && t.getPath().endsWith(".json"));
-		for (Map.Entry<ResourceLocation, Resource> value : listed.entrySet()) {
-			LOGGER.info(value.getKey().toString());
-			Resource resource = value.getValue();
-			JsonObject json = GSON.fromJson(resource.openAsReader(), JsonObject.class);
-			String type = json.get("type").getAsString();
-			recipeTypes.put(type, BuiltInRegistries.RECIPE_SERIALIZER.get(ResourceLocation.parse(type)).getClass());
-			recipes.add(json);
-		}
+		data.listResources("recipes", t -> targets.containsKey(t.getNamespace()) && t.getPath().endsWith(".json"))
+				.forEach((location, resource) -> targets.get(location.getNamespace()).recipes.put(location, resource));
 	}
 	
-	private void _collectEnchant() {
+	private static void _collectEnchant(Map<String, Exporter> targets) {
 		PLAYER_LOGGER.info("开始获取附魔");
 		instance.level.registryAccess().registryOrThrow(Registries.ENCHANTMENT).entrySet().stream()
-				.filter(i -> i.getKey().location().getNamespace().equals(modid))
+				.filter(i -> targets.containsKey(i.getKey().location().getNamespace()))
 				.forEach(i -> {
 					ResourceLocation location = i.getKey().location();
 					LOGGER.info(location.toString());
-					enchantments.add(new EnchantEntry(location, i.getValue()));
+					targets.get(location.getNamespace()).enchantments.add(new EnchantEntry(location, i.getValue()));
 				});
 	}
 	
-	private void _collectDim() {
+	private static void _collectDim(Map<String, Exporter> targets) {
 		IntegratedServer server = Minecraft.getInstance().getSingleplayerServer();
 		PLAYER_LOGGER.info("开始获取维度");
 		server.registryAccess().registry(Registries.DIMENSION_TYPE).orElseThrow().entrySet().stream()
-				.filter(i -> i.getKey().location().getNamespace().equals(modid))
+				.filter(i -> targets.containsKey(i.getKey().location().getNamespace()))
 				.forEach(i -> {
 					ResourceLocation location = i.getKey().location();
 					LOGGER.info(location.toString());
-					dimensions.add(new DimensionEntry(location, byId(location.getPath()), i.getValue()));
+					targets.get(location.getNamespace()).dimensions.add(new DimensionEntry(location, byId(location.getPath()), i.getValue()));
 				});
 		
 	}
 	
-	private void _collectBiome() {
+	private static void _collectBiome(Map<String, Exporter> targets) {
 		IntegratedServer server = Minecraft.getInstance().getSingleplayerServer();
 		PLAYER_LOGGER.info("开始获取生物群系");
 		var list = server.registryAccess().registry(Registries.BIOME).orElseThrow().entrySet().stream()
-				.filter(i -> i.getKey().location().getNamespace().equals(modid))
+				.filter(i -> targets.containsKey(i.getKey().location().getNamespace()))
 				.toList();
 		list.forEach(i -> {
 			ResourceLocation location = i.getKey().location();
 			LOGGER.info(location.toString());
-			biomes.add(new BiomeEntry(location, byId(location.getPath())));
+			targets.get(location.getNamespace()).biomes.add(new BiomeEntry(location, byId(location.getPath())));
 		});
 	}
 	
-	private void _collectEffect() {
+	private static void _collectEffect(Map<String, Exporter> targets) {
 		PLAYER_LOGGER.info("开始获取药水效果");
 		ResourceManager manager = instance.getResourceManager();
 		BuiltInRegistries.MOB_EFFECT.entrySet().stream()
-				.filter(i -> i.getKey().location().getNamespace().equals(modid))
+				.filter(i -> targets.containsKey(i.getKey().location().getNamespace()))
 				.forEach(i -> {
 					ResourceLocation location = i.getKey().location();
 					LOGGER.info(location.toString());
@@ -368,73 +622,428 @@ public class Exporter {
 						} catch (IOException ex) {
 							throw new RuntimeException(ex);
 						}
-						effects.add(e);
+						targets.get(location.getNamespace()).effects.add(e);
 					});
 				});
 	}
 	
 	//========================================
-	final ExistHelper existHelper = new ExistHelper();
+	/**
+	 * 本次导出已经占用的附件路径,{@link #tryReuse}要先检查再预定,所以不能用{@link ExistHelper#simple()}
+	 */
+	final Set<String> usedPaths = new HashSet<>();
+	final ExistHelper existHelper = new ExistHelper(path -> !usedPaths.add(path));
+	final ContentIndex attachments = new ContentIndex(DEDUP_INDEX_SIZE);
+	/**
+	 * 复用的条目预定了的附件路径
+	 */
+	final Set<String> reservedRefs = new HashSet<>();
+	/**
+	 * 已经从上一次的压缩包拷贝过来的附件
+	 */
+	final Set<String> copiedRefs = new HashSet<>();
+	int reusedCount;
 	
-	public <S extends StorableV2> void write(String storeType, ZipOutputStream out, String fileName, List<S> lists) throws IOException {
+	public <S extends StorableV2> void write(String storeType, ParallelZipWriter out, String fileName, List<S> lists) throws IOException {
+		write(storeType, out, fileName, lists, null);
+	}
+	
+	/**
+	 * 流式写入: 始终只有{@link #STREAM_WINDOW}个条目处于 已提交渲染-未写入 的状态,
+	 * 每个条目store后立即关闭并从lists中移除,json行先写入临时文件,最后再整体拷贝进zip
+	 * (store时附件也要写入zip,两个entry不能交错)
+	 * <p>
+	 * 窗口消耗到一半时才一次性补满,这样每次补进来的条目可以合批渲染;
+	 * 补充时还受{@link RenderBudget}限制(所有导出共用),没有预算时先写入窗口里的条目,写完归还预算后再继续补充
+	 * <p>
+	 * 指纹与上一次导出相同的条目在进入窗口时就确定复用,不会提交渲染
+	 *
+	 * @param prepare 一批条目进入窗口时调用,一般用来提交渲染任务
+	 */
+	public <S extends StorableV2> void write(String storeType, ParallelZipWriter out, String fileName, List<S> lists, @Nullable Consumer<List<S>> prepare) throws IOException {
 		if (lists == null || lists.isEmpty()) return;
-		BiFunction<String, byte @Nullable [], String> writer = (path, data) -> {
+		try (var span = profiler.start("write/" + storeType)) {
+			writeStream(storeType, out, fileName, lists, prepare);
+		}
+	}
+	
+	private <S extends StorableV2> void writeStream(String storeType, ParallelZipWriter out, String fileName, List<S> lists, @Nullable Consumer<List<S>> prepare) throws IOException {
+		//当前条目是否有附件没能写入(渲染或编码失败)
+		boolean[] missing = {false};
+		BiFunction<String, @Nullable Attachment, String> writer = (path, data) -> {
 			try {
 				if (data != null) {
-					out.putNextEntry(newZipEntry(path));
-					out.write(data);
-					out.closeEntry();
+					//内容相同的附件(例如只差了不影响模型的nbt的物品)直接引用已有的
+					String existing = attachments.putIfAbsent(data, path);
+					if (existing != null) return "#" + existing;
+					out.write(entry(path), data.data(), data.crc());
 					return "#" + path;
 				}
 			} catch (IOException e) {
 				throw new RuntimeException(e);
 			}
+			missing[0] = true;
 			return null;
 		};
 		
-		LinkedList<JsonObject> jsons = new LinkedList<>();
-		int version = -1;
-		for (int i = 0; i < lists.size(); i++) {
-			S storable = lists.get(i);
-			JsonObject object = new JsonObject();
-			int ver = storable.store(existHelper, writer, object, PLAYER_LOGGER);
-			if (ver < 1) throw new RuntimeException("错误的版本号:" + ver);
-			if (i == 0) {
-				version = ver;
-			} else if (ver != version) {
-				throw new RemoteException("不匹配的版本号: encountered:" + ver + ", expected:" + version);
+		File spool = File.createTempFile(storeType + "_", ".jsons", modRoot);
+		File binSpool = null;
+		//任何一步出错(store失败、版本号不匹配、等待预算被中断等)临时文件都要删掉
+		try {
+			if (BINARY) binSpool = File.createTempFile(storeType + "_", ".rrb", modRoot);
+			ArrayDeque<S> window = new ArrayDeque<>();
+			Map<S, String> fingerprints = new IdentityHashMap<>();
+			Map<S, ExportManifest.Record> reused = new IdentityHashMap<>();
+			Map<S, RenderBudget.Ticket> tickets = new IdentityHashMap<>();
+			Iterator<S> it = lists.iterator();
+			int version = -1;
+			boolean first = true;
+			try (var spoolWriter = Files.newBufferedWriter(spool.toPath(), StandardCharsets.UTF_8);
+			     var bin = openBinary(binSpool)) {
+				while (it.hasNext() || !window.isEmpty()) {
+					if (window.size() <= STREAM_WINDOW / 2 && it.hasNext()) {
+						List<S> batch = new ArrayList<>();
+						List<S> changed = new ArrayList<>();
+						while (window.size() + batch.size() < STREAM_WINDOW && it.hasNext()) {
+							if (!RenderBudget.hasRoom()) {
+								//窗口里还有条目时先去写入它们,写完自然会腾出空位;窗口空了只能等别的导出(批量导出时)归还
+								if (!window.isEmpty() || !batch.isEmpty()) break;
+								try (var span = profiler.start("render/backpressure")) {
+									if (!RenderBudget.awaitRoom(BUDGET_TIMEOUT_MS)) {
+										LOGGER.warn("等待渲染预算超时({}),继续导出", RenderBudget.describe());
+									}
+								} catch (InterruptedException e) {
+									throw new InterruptedIOException("等待渲染预算时被中断");
+								}
+							}
+							S s = it.next();
+							it.remove();
+							batch.add(s);
+							String fp = s.fingerprint();
+							if (fp != null) fingerprints.put(s, fp);
+							ExportManifest.Record old = fp == null ? null : tryReuse(fp);
+							if (old != null) {
+								reused.put(s, old);
+							} else {
+								changed.add(s);
+								tickets.put(s, RenderBudget.admit(s.icons()));
+							}
+						}
+						if (prepare != null && !changed.isEmpty()) prepare.accept(changed);
+						//渲染完成后立即开始编码附件,不用等到轮到它store
+						changed.forEach(StorableV2::whenReady);
+						window.addAll(batch);
+					}
+					S storable = window.poll();
+					ExportManifest.Record old = reused.remove(storable);
+					JsonObject object;
+					int ver;
+					boolean complete = true;
+					try (var span = profiler.start(old != null ? "reuse" : "store")) {
+						if (old != null) {
+							copyPrevious(out, old.refs());
+							ver = old.version();
+							object = JsonParser.parseString(old.json()).getAsJsonObject();
+							reusedCount++;
+						} else {
+							object = new JsonObject();
+							missing[0] = false;
+							ver = storable.store(existHelper, writer, object, PLAYER_LOGGER);
+							complete = !missing[0] && !storable.whenReady().isCompletedExceptionally();
+						}
+					} finally {
+						if (storable instanceof Closeable closeable) {
+							closeable.close();
+						}
+						RenderBudget.Ticket ticket = tickets.remove(storable);
+						if (ticket != null) ticket.close();
+					}
+					if (ver < 1) throw new RuntimeException("错误的版本号:" + ver);
+					if (first) {
+						version = ver;
+						first = false;
+					} else if (ver != version) {
+						throw new RemoteException("不匹配的版本号: encountered:" + ver + ", expected:" + version);
+					}
+					String fp = fingerprints.remove(storable);
+					//不完整的条目不记进清单,否则指纹不变时下次会一直复用坏掉的结果,不再重新渲染
+					if (fp != null && complete) manifest.entries.put(fp, old != null ? old : ExportManifest.Record.of(ver, object));
+					if (bin != null) bin.add(object.has("id") ? object.get("id").getAsString() : null, object);
+					storable.toLegacy(object);
+					spoolWriter.append(object.toString()).append("\n");
+				}
+				if (bin != null) bin.finish(version);
+			} finally {
+				//出错时把还在窗口里的条目也释放掉
+				for (S s : window) {
+					if (s instanceof Closeable closeable) closeable.close();
+				}
+				tickets.values().forEach(RenderBudget.Ticket::close);
+				lists.clear();
 			}
-			jsons.add(object);
-			
-			if (storable instanceof Closeable closeable) {
-				closeable.close();
+			byte[] head = ("#format_version " + storeType + "_v" + version + "\n").getBytes(StandardCharsets.UTF_8);
+			try (var span = profiler.start("spool"); var in = new SequenceInputStream(new ByteArrayInputStream(head), Files.newInputStream(spool.toPath()))) {
+				out.writeDeflated(entry(fileName), in);
+				if (binSpool != null) out.writeStored(entry(binaryName(fileName)), binSpool.toPath());
 			}
+		} finally {
+			spool.delete();
+			if (binSpool != null) binSpool.delete();
+		}
+	}
+	
+	private static @Nullable BinaryTableWriter openBinary(@Nullable File spool) throws IOException {
+		return spool == null ? null : new BinaryTableWriter(new BufferedOutputStream(Files.newOutputStream(spool.toPath()), 1 << 16));
+	}
+	
+	/**
+	 * xxx.jsons -> xxx.rrb
+	 */
+	private static String binaryName(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return (dot < 0 ? fileName : fileName.substring(0, dot)) + ".rrb";
+	}
+	
+	/**
+	 * 能复用的前提是上一次的附件都还在,并且附件路径没有被本次导出的其它条目占用;
+	 * 全部检查通过后才在进入窗口时一起预定这些路径,之后store的条目会自动避开
+	 */
+	private ExportManifest.@Nullable Record tryReuse(String fingerprint) {
+		if (previous == null || previousZip == null) return null;
+		ExportManifest.Record old = previous.entries.get(fingerprint);
+		if (old == null) return null;
+		for (String ref : old.refs()) {
+			if (previousZip.getEntry(ref) == null) return null;
+		}
+		for (String ref : old.refs()) {
+			//复用的条目之间可以共用附件(内容去重),被store的条目占用了就不行
+			if (!reservedRefs.contains(ref) && usedPaths.contains(ref)) return null;
+		}
+		usedPaths.addAll(old.refs());
+		reservedRefs.addAll(old.refs());
+		return old;
+	}
+	
+	private void copyPrevious(ParallelZipWriter out, List<String> refs) throws IOException {
+		for (String ref : refs) {
+			if (!copiedRefs.add(ref)) continue;
+			byte[] data = readPrevious(ref);
+			if (data == null) throw new FileNotFoundException(ref);
+			attachments.putIfAbsent(data, ref);
+			out.write(entry(ref), data);
 		}
-		writeJson(out, fileName, jsons, "#format_version " + storeType + "_v" + version);
-		lists.clear();
 	}
 	
-	private void writeJson(ZipOutputStream out, String fileName, List<JsonObject> jsons, @Nullable String head) throws IOException {
-		out.putNextEntry(newZipEntry(fileName));
-		var osw = new OutputStreamWriter(out);
-		if (head != null && !head.isEmpty()) {
-			osw.append(head).append("\n");
+	private byte @Nullable [] readPrevious(String path) throws IOException {
+		if (previousZip == null) return null;
+		ZipEntry e = previousZip.getEntry(path);
+		if (e == null) return null;
+		try (InputStream in = previousZip.getInputStream(e)) {
+			return in.readAllBytes();
 		}
-		jsons.forEach(i -> {
+	}
+	
+	/**
+	 * 序列化类(多个配方类型可能共用一个)按所在jar分组,每组在{@link FernFlowerUtils#getPool()}上用一个上下文批量反编译,
+	 * 写入时按类型名的顺序,与完成的先后无关
+	 *
+	 * @return class : source
+	 */
+	private Map<Class<?>, CompletableFuture<byte[]>> decompileRecipeTypes() {
+		if (recipeTypes.isEmpty()) return Map.of();
+		PLAYER_LOGGER.info("反编译配方序列化类");
+		Map<Class<?>, CompletableFuture<byte[]>> jobs = new HashMap<>();
+		Set<Class<?>> toDecompile = new LinkedHashSet<>();
+		for (Map.Entry<String, Class<?>> entry : recipeTypes.entrySet()) {
+			String k = entry.getKey();
+			Class<?> clz = entry.getValue();
 			try {
-				osw.append(i.toString()).append("\n");
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+				String classHash = ContentIndex.hash(FernFlowerUtils.getClassBytes(clz));
+				manifest.recipeTypes.put(k, classHash);
+				if (jobs.containsKey(clz) || toDecompile.contains(clz)) continue;
+				byte[] bytes = previous != null && classHash.equals(previous.recipeTypes.get(k)) ? readPrevious("recipe_types/" + k + ".java") : null;
+				if (bytes != null) {
+					LOGGER.info("decompile REUSE {}", clz.getName());
+					profiler.record("decompile/reuse", 0, bytes.length);
+					jobs.put(clz, CompletableFuture.completedFuture(bytes));
+				} else {
+					toDecompile.add(clz);
+				}
+			} catch (Throwable e) {
+				LOGGER.error("反编译" + k + "失败", e);
 			}
-		});
-		osw.flush();
-		out.closeEntry();
+		}
+		long start = System.nanoTime();
+		FernFlowerUtils.decompileAllAsync(toDecompile).forEach((clz, f) -> jobs.put(clz, f.thenApply(i -> {
+			byte[] bytes = i.getBytes(StandardCharsets.UTF_8);
+			//从提交到完成,包括排队
+			profiler.record("decompile/latency", System.nanoTime() - start, bytes.length);
+			return bytes;
+		})));
+		return jobs;
+	}
+	
+	private void writeRecipeTypes(ParallelZipWriter output, Map<Class<?>, CompletableFuture<byte[]>> jobs) {
+		for (Map.Entry<String, Class<?>> entry : recipeTypes.entrySet()) {
+			String k = entry.getKey();
+			CompletableFuture<byte[]> job = jobs.get(entry.getValue());
+			if (job == null) continue;
+			try (var span = profiler.start("write/recipe_types")) {
+				byte[] bytes;
+				try (var wait = profiler.start("wait")) {
+					bytes = job.join();
+				}
+				output.write(entry("recipe_types/" + k + ".java"), bytes);
+				LOGGER.info("decompiled {}", entry.getValue().getName());
+			} catch (Throwable e) {
+				LOGGER.error("反编译" + k + "失败", e);
+			}
+		}
+	}
+	
+	/**
+	 * 配方按{@link #RECIPE_CHUNK}个一块在{@link RecipeRenderer#EXECUTOR}上并行解析,按原来的顺序直接流入recipe.jsons,
+	 * 同时最多只有{@link #RECIPE_INFLIGHT}块在内存里
+	 *
+	 * @return 成功写入的配方数
+	 */
+	private int writeRecipes(ParallelZipWriter out) throws IOException {
+		File binSpool = BINARY ? File.createTempFile("recipe_", ".rrb", modRoot) : null;
+		try (var span = profiler.start("write/recipe"); var bin = openBinary(binSpool);
+		     RecipeStream in = new RecipeStream(recipes.entrySet().iterator(), bin)) {
+			out.writeDeflated(entry("recipe.jsons"), in);
+			if (bin != null) {
+				//配方没有版本号
+				bin.finish(0);
+				bin.close();
+				out.writeStored(entry("recipe.rrb"), binSpool.toPath());
+			}
+			return in.count;
+		} finally {
+			recipes.clear();
+			if (binSpool != null) binSpool.delete();
+		}
+	}
+	
+	private static final int RECIPE_CHUNK = 256;
+	private static final int RECIPE_INFLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+	
+	/**
+	 * @param objects 配方id : 配方,不写二进制表时为空
+	 */
+	private record ParsedRecipes(byte[] data, Map<String, Class<?>> types, int count, List<Pair<String, JsonObject>> objects) {
+	}
+	
+	private class RecipeStream extends InputStream {
+		private final Iterator<Map.Entry<ResourceLocation, Resource>> it;
+		private final @Nullable BinaryTableWriter bin;
+		private final ArrayDeque<CompletableFuture<ParsedRecipes>> inflight = new ArrayDeque<>();
+		private byte[] buf = new byte[0];
+		private int pos;
+		int count;
+		
+		RecipeStream(Iterator<Map.Entry<ResourceLocation, Resource>> it, @Nullable BinaryTableWriter bin) {
+			this.it = it;
+			this.bin = bin;
+			fill();
+		}
+		
+		private void fill() {
+			while (inflight.size() < RECIPE_INFLIGHT && it.hasNext()) {
+				List<Map.Entry<ResourceLocation, Resource>> chunk = new ArrayList<>(RECIPE_CHUNK);
+				while (chunk.size() < RECIPE_CHUNK && it.hasNext()) chunk.add(it.next());
+				inflight.add(CompletableFuture.supplyAsync(() -> parseRecipes(chunk, bin != null), EXECUTOR));
+			}
+		}
+		
+		/**
+		 * @return 是否还有数据
+		 */
+		private boolean next() throws IOException {
+			while (pos >= buf.length) {
+				CompletableFuture<ParsedRecipes> f = inflight.poll();
+				if (f == null) return false;
+				ParsedRecipes parsed = f.join();
+				recipeTypes.putAll(parsed.types());
+				count += parsed.count();
+				//二进制表的字符串表是共用的,只能在这里按顺序写
+				if (bin != null) {
+					for (Pair<String, JsonObject> recipe : parsed.objects()) bin.add(recipe.getFirst(), recipe.getSecond());
+				}
+				buf = parsed.data();
+				pos = 0;
+				fill();
+			}
+			return true;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			return next() ? buf[pos++] & 0xff : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			if (!next()) return -1;
+			int n = Math.min(len, buf.length - pos);
+			System.arraycopy(buf, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+		
+		@Override
+		public void close() {
+			inflight.forEach(f -> f.cancel(false));
+			inflight.clear();
+		}
+	}
+	
+	/**
+	 * 单个配方出错只跳过它自己
+	 */
+	private static ParsedRecipes parseRecipes(List<Map.Entry<ResourceLocation, Resource>> chunk, boolean keepObjects) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(chunk.size() * 512);
+		Map<String, Class<?>> types = new HashMap<>();
+		List<Pair<String, JsonObject>> objects = keepObjects ? new ArrayList<>(chunk.size()) : List.of();
+		int count = 0;
+		for (Map.Entry<ResourceLocation, Resource> recipe : chunk) {
+			LOGGER.info(recipe.getKey().toString());
+			try (Reader reader = recipe.getValue().openAsReader()) {
+				JsonObject json = GSON.fromJson(reader, JsonObject.class);
+				String type = json.get("type").getAsString();
+				RecipeSerializer<?> serializer = BuiltInRegistries.RECIPE_SERIALIZER.get(ResourceLocation.parse(type));
+				if (serializer == null) {
+					//游戏本身也加载不了这样的配方
+					LOGGER.warn("跳过配方{}: 未注册的类型{}", recipe.getKey(), type);
+					continue;
+				}
+				types.put(type, serializer.getClass());
+				bos.write(json.toString().getBytes(StandardCharsets.UTF_8));
+				bos.write('\n');
+				if (keepObjects) objects.add(Pair.of(recipeId(recipe.getKey()), json));
+				count++;
+			} catch (Exception e) {
+				LOGGER.error("解析配方" + recipe.getKey() + "失败", e);
+			}
+		}
+		return new ParsedRecipes(bos.toByteArray(), types, count, objects);
+	}
+	
+	/**
+	 * modid:recipes/a/b.json -> modid:a/b
+	 */
+	private static String recipeId(ResourceLocation file) {
+		String path = file.getPath();
+		if (path.startsWith("recipes/")) path = path.substring("recipes/".length());
+		if (path.endsWith(".json")) path = path.substring(0, path.length() - ".json".length());
+		return file.getNamespace() + ":" + path;
 	}
 	
 	//========================================
-	private ZipEntry newZipEntry(String path) {
+	private String entry(String path) {
 		LOGGER.info("准备写入: " + path);
-		return new ZipEntry(path);
+		return path;
 	}
 	
 	
@@ -443,7 +1052,7 @@ public class Exporter {
 	 *
 	 * @return 是否失败
 	 */
-	private boolean tryRun(String msg, Runnable_WithException<Exception> run, @Nullable Runnable fail) {
+	private static boolean tryRun(String msg, Runnable_WithException<Exception> run, @Nullable Runnable fail) {
 		try {
 			run.run();
 		} catch (Throwable e) {
@@ -0,0 +1,165 @@
+package cn.breadnicecat.reciperenderer;
+
+import cn.breadnicecat.reciperenderer.utils.RTimer;
+import com.google.gson.JsonObject;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.screens.TitleScreen;
+import net.minecraft.world.Difficulty;
+import net.minecraft.world.level.GameRules;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.level.LevelSettings;
+import net.minecraft.world.level.WorldDataConfiguration;
+import net.minecraft.world.level.levelgen.WorldOptions;
+import net.minecraft.world.level.levelgen.presets.WorldPresets;
+import net.minecraft.world.level.storage.LevelStorageSource;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.*;
+import static cn.breadnicecat.reciperenderer.utils.CommonUtils.sleep;
+
+/**
+ * Created in 2026/10/17 21:52
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 无人值守的批量导出: 启动参数里加上-Dreciperenderer.headless=mod1,mod2(或*),
+ * 客户端加载到标题画面后自动新建一个一次性的单人世界,用{@link BatchExporter}导出,写出汇总后以状态码退出
+ * <p>
+ * 这个模式下不会启动导出窗口(Swing),也不会在导出完成后打开文件夹,窗口本身还是要有的(软件OpenGL+Xvfb即可)
+ * <p>
+ * 状态码: 0全部成功, 1有mod导出失败, 2致命错误(没有可导出的mod、进不了世界等), 3超时
+ * <p>
+ **/
+@Environment(EnvType.CLIENT)
+public class HeadlessExporter {
+	/**
+	 * 要导出的mod,逗号/空格分隔,*为除minecraft和RR以外的所有mod,为空时不启用
+	 */
+	public static final String MODS = System.getProperty("reciperenderer.headless", "").trim();
+	public static final boolean ENABLED = !MODS.isEmpty();
+	/**
+	 * 一次性世界的存档名,已经存在时先删掉
+	 */
+	public static String WORLD = System.getProperty("reciperenderer.headless.world", "rr_headless");
+	public static long SEED = Long.getLong("reciperenderer.headless.seed", 0L);
+	/**
+	 * 导出阶段(进入世界之后)的超时
+	 */
+	public static long TIMEOUT_MIN = Long.getLong("reciperenderer.headless.timeoutMin", 120L);
+	/**
+	 * 汇总文件,为null时写到rr_export/headless_summary.json
+	 */
+	public static @Nullable String SUMMARY = System.getProperty("reciperenderer.headless.summary");
+	/**
+	 * 进入世界的超时
+	 */
+	private static final long WORLD_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+	
+	public static final int OK = 0, FAILED = 1, FATAL = 2, TIMEOUT = 3;
+	
+	/**
+	 * 在{@link RecipeRenderer#init}里调用,此时客户端还没有加载完成
+	 */
+	static void start() {
+		Thread thread = new Thread(HeadlessExporter::run, "RR-Headless");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private static void run() {
+		int status;
+		JsonObject summary = new JsonObject();
+		RTimer total = new RTimer();
+		try {
+			Minecraft instance = awaitTitleScreen();
+			RTimer t = new RTimer();
+			LOGGER.info("无人值守导出: 正在创建世界{}", WORLD);
+			instance.execute(() -> createWorld(instance));
+			while (instance.level == null || instance.player == null || instance.getSingleplayerServer() == null) {
+				if (t.get() > WORLD_TIMEOUT_MS) throw new IllegalStateException("无法进入世界" + WORLD);
+				sleep(200);
+			}
+			//等几帧让区块和渲染线程稳定
+			sleep(3000);
+			summary.addProperty("world_ms", t.get());
+			
+			List<String> mods = MODS.equals("*")
+					? allMods.keySet().stream().filter(i -> !i.equals("minecraft") && !i.equals(MOD_ID)).sorted().toList()
+					: Arrays.stream(MODS.split("[\\s,]+")).filter(i -> !i.isEmpty()).toList();
+			LOGGER.info("无人值守导出: 开始导出{}", mods);
+			JsonObject result = new BatchExporter(mods).runAsync().get(TIMEOUT_MIN, TimeUnit.MINUTES);
+			result.asMap().forEach(summary::add);
+			status = result.getAsJsonArray("failed").isEmpty() ? OK : FAILED;
+		} catch (TimeoutException e) {
+			LOGGER.error("无人值守导出超时({}min)", TIMEOUT_MIN);
+			status = TIMEOUT;
+		} catch (Throwable e) {
+			LOGGER.error("无人值守导出遭遇致命错误", e);
+			summary.addProperty("error", e.toString());
+			status = FATAL;
+		}
+		summary.addProperty("status", status);
+		summary.addProperty("wall_ms", total.get());
+		try {
+			File file = SUMMARY != null ? new File(SUMMARY) : new File(Exporter.ROOT_DIR, "headless_summary.json");
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			Files.writeString(file.toPath(), PRETTY.toJson(summary), StandardCharsets.UTF_8);
+			LOGGER.info("无人值守导出汇总已写入{}", file.getAbsolutePath());
+		} catch (Exception e) {
+			LOGGER.error("无法写入汇总", e);
+		}
+		exit(status);
+	}
+	
+	private static Minecraft awaitTitleScreen() {
+		Minecraft instance;
+		while ((instance = Minecraft.getInstance()) == null || instance.getOverlay() != null || !(instance.screen instanceof TitleScreen)) {
+			sleep(500);
+		}
+		return instance;
+	}
+	
+	/**
+	 * 渲染线程
+	 */
+	private static void createWorld(Minecraft instance) {
+		LevelStorageSource source = instance.getLevelSource();
+		if (source.levelExists(WORLD)) {
+			try (LevelStorageSource.LevelStorageAccess access = source.createAccess(WORLD)) {
+				access.deleteLevel();
+			} catch (Exception e) {
+				LOGGER.warn("无法删除旧的一次性世界" + WORLD, e);
+			}
+		}
+		LevelSettings settings = new LevelSettings(WORLD, GameType.CREATIVE, false, Difficulty.PEACEFUL, true, new GameRules(), WorldDataConfiguration.DEFAULT);
+		instance.createWorldOpenFlows().createFreshLevel(WORLD, settings, new WorldOptions(SEED, false, false), WorldPresets::createNormalWorldDimensions, instance.screen);
+	}
+	
+	/**
+	 * 先在渲染线程上退出世界(停止集成服务器),再退出进程
+	 */
+	private static void exit(int status) {
+		LOGGER.info("无人值守导出结束,状态码{}", status);
+		Minecraft instance = Minecraft.getInstance();
+		try {
+			instance.executeBlocking(() -> {
+				if (instance.level != null) instance.level.disconnect();
+				instance.disconnect();
+			});
+		} catch (Throwable e) {
+			LOGGER.warn("退出世界时出现异常", e);
+		}
+		System.exit(status);
+	}
+}
@@ -1,11 +1,15 @@
 package cn.breadnicecat.reciperenderer;
 
 import cn.breadnicecat.reciperenderer.gui.screens.EntityViewScreen;
+import cn.breadnicecat.reciperenderer.render.EntityPool;
 import cn.breadnicecat.reciperenderer.render.IconWrapper;
 import cn.breadnicecat.reciperenderer.render.ItemIcon;
+import cn.breadnicecat.reciperenderer.render.PboReadback;
+import cn.breadnicecat.reciperenderer.render.RenderBudget;
 import cn.breadnicecat.reciperenderer.utils.RTimer;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.commands.CommandBuildContext;
@@ -25,6 +29,7 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.item.ItemStack;
 
 import java.io.File;
+import java.util.Arrays;
 
 import static cn.breadnicecat.reciperenderer.RecipeRenderer.*;
 import static net.minecraft.commands.Commands.argument;
@@ -117,23 +122,24 @@ public class RCommand {
 			return 1;
 		});
 		//=================================
+		var status = literal("status").executes(c -> {
+			c.getSource().sendSystemMessage(Component.literal(RenderBudget.describe()));
+			c.getSource().sendSystemMessage(Component.literal(getTasks().describe()));
+			c.getSource().sendSystemMessage(Component.literal(EntityPool.describe()));
+			c.getSource().sendSystemMessage(Component.literal(PboReadback.describe()));
+			return 1;
+		});
+		//=================================
 		var builder = literal("export");
 		for (String modid : allMods.keySet()) {
-			builder.then(literal(modid).executes(c -> {
-				if (outdated) {
-					c.getSource().sendFailure(Component.literal("当前版本不是已发布的最新版本(" + modVersion + ", 最新版:" + latestVer + "), 导出的数据可能与会与最新版有分歧"));
-					c.getSource().sendSystemMessage(Component.literal("输入\"/reciperenderer ignoreOutdated\"忽略此问题").withStyle(ChatFormatting.YELLOW));
-					return 0;
-				}
-				try {
-					export(modid);
-				} catch (RuntimeException e) {
-					c.getSource().sendFailure(Component.literal(e.getMessage()));
-					throw e;
-				}
-				return 1;
-			}));
+			builder.then(literal(modid).executes(c -> runExport(c.getSource(), () -> export(modid))));
 		}
+		//一次导出所有mod(不含minecraft本体和RR自己)或者用空格/逗号分隔的mod列表
+		builder.then(literal("*").executes(c -> runExport(c.getSource(), () -> exportBatch(allMods.keySet().stream()
+				.filter(i -> !i.equals("minecraft") && !i.equals(MOD_ID))
+				.toList()))));
+		builder.then(literal("batch").then(argument("mods", StringArgumentType.greedyString()).executes(c -> runExport(c.getSource(),
+				() -> exportBatch(Arrays.stream(StringArgumentType.getString(c, "mods").split("[\\s,]+")).filter(i -> !i.isEmpty()).toList())))));
 		//=================================
 		var open = literal("open")
 				.then(literal("worldly").executes((c) -> open(WorldlyExporter.OUTPUT_DIR)))
@@ -148,8 +154,23 @@ public class RCommand {
 			reciperenderer.then(test);
 			rr.then(test);
 		}
-		dispatcher.register(reciperenderer.then(builder).then(worldly).then(outdate).then(gc).then(open));
-		dispatcher.register(rr.then(builder).then(worldly).then(open).then(gc));
+		dispatcher.register(reciperenderer.then(builder).then(worldly).then(outdate).then(gc).then(status).then(open));
+		dispatcher.register(rr.then(builder).then(worldly).then(open).then(gc).then(status));
+	}
+	
+	private static int runExport(CommandSourceStack source, Runnable export) {
+		if (outdated) {
+			source.sendFailure(Component.literal("当前版本不是已发布的最新版本(" + modVersion + ", 最新版:" + latestVer + "), 导出的数据可能与会与最新版有分歧"));
+			source.sendSystemMessage(Component.literal("输入\"/reciperenderer ignoreOutdated\"忽略此问题").withStyle(ChatFormatting.YELLOW));
+			return 0;
+		}
+		try {
+			export.run();
+		} catch (RuntimeException e) {
+			source.sendFailure(Component.literal(e.getMessage()));
+			throw e;
+		}
+		return 1;
 	}
 	
 }
@@ -2,11 +2,16 @@ package cn.breadnicecat.reciperenderer;
 
 import cn.breadnicecat.reciperenderer.gui.ExportFrame;
 import cn.breadnicecat.reciperenderer.gui.screens.WorldlyProgressScreen;
+import cn.breadnicecat.reciperenderer.render.EntityPool;
+import cn.breadnicecat.reciperenderer.render.PboReadback;
+import cn.breadnicecat.reciperenderer.render.RenderTargetPool;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
+import cn.breadnicecat.reciperenderer.utils.LaneScheduler;
+import cn.breadnicecat.reciperenderer.utils.LaneScheduler.Lane;
 import cn.breadnicecat.reciperenderer.utils.RTimer;
-import cn.breadnicecat.reciperenderer.utils.TaskChain;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 import com.mojang.brigadier.CommandDispatcher;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -22,8 +27,10 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -106,12 +113,17 @@ public class RecipeRenderer {
 			LOGGER.error("获取Mod实例时出现异常", e);
 		}
 		
-		EXECUTOR.submit(() -> {
-			LOGGER.info("设置headless=false");
-			System.setProperty("java.awt.headless", "false");
-			//先初始化
-			launchWindow().free();
-		});
+		if (HeadlessExporter.ENABLED) {
+			LOGGER.info("无人值守导出模式,不启动窗口");
+			HeadlessExporter.start();
+		} else {
+			EXECUTOR.submit(() -> {
+				LOGGER.info("设置headless=false");
+				System.setProperty("java.awt.headless", "false");
+				//先初始化
+				launchWindow().free();
+			});
+		}
 		
 		
 		EXECUTOR.submit(() -> {
@@ -133,27 +145,62 @@ public class RecipeRenderer {
 		RCommand.init(context, dispatcher);
 	}
 	
-	//head -> tail
-	private static TaskChain tasks = new TaskChain();
+	/**
+	 * 渲染线程每帧执行挂载任务的时间预算
+	 */
+	public static long FRAME_BUDGET_MS = Long.getLong("reciperenderer.frameBudgetMs", 8L);
+	private static final LaneScheduler tasks = new LaneScheduler(FRAME_BUDGET_MS);
+	
+	public static LaneScheduler getTasks() {
+		return tasks;
+	}
 	
 	public static void _onFrameUpdate() {
 		ProfilerFiller profiler = Minecraft.getInstance().getProfiler();
 		profiler.push("rr_onClientTick");
 		tasks.run(profiler);
+		profiler.push("rr_renderMaintenance");
+		PboReadback.poll();
+		RenderTargetPool.evictIdle();
+		PboReadback.evictIdle();
+		EntityPool.evictIdle();
 		profiler.pop();
+		profiler.pop();
+	}
+	
+	/**
+	 * 离开世界(断开连接)时由各平台在渲染线程上调用
+	 */
+	public static void _onLeaveWorld() {
+		EntityPool.clear();
+		PboReadback.clear();
+		RenderTargetPool.clear();
 	}
 	
+	/**
+	 * 挂到{@link Lane#INTERACTIVE}通道
+	 */
 	public static void hookRenderer(Runnable run) {
-		tasks.add(run);
+		hookRenderer(Lane.INTERACTIVE, run);
+	}
+	
+	public static void hookRenderer(Lane lane, Runnable run) {
+		tasks.add(lane, run);
 	}
 	
 	public static void export(String modid) {
 		new Exporter(modid).runAsync();
 	}
 	
+	public static CompletableFuture<JsonObject> exportBatch(Collection<String> modids) {
+		return new BatchExporter(modids).runAsync();
+	}
+	
 	public static int open(File file) {
 		try {
 			file.mkdirs();
+			//无人值守时没有人看
+			if (HeadlessExporter.ENABLED) return 1;
 			Util.getPlatform().openFile(file);
 			return 1;
 		} catch (Exception e) {
@@ -1,6 +1,7 @@
 package cn.breadnicecat.reciperenderer;
 
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
+import cn.breadnicecat.reciperenderer.utils.LaneScheduler;
 import cn.breadnicecat.reciperenderer.utils.RTimer;
 import cn.breadnicecat.reciperenderer.worldly.ChunkContainer;
 import cn.breadnicecat.reciperenderer.worldly.WorldlyContainer;
@@ -68,7 +69,7 @@ public class WorldlyExporter {
 		file.getParentFile().mkdirs();
 		try (var writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
 			//阻塞渲染线程让效率更高
-			RecipeRenderer.hookRenderer(() -> {
+			RecipeRenderer.hookRenderer(LaneScheduler.Lane.MAINTENANCE, () -> {
 				instance.pauseGame(false);
 				while (state.get()) {
 					sleep(5000);
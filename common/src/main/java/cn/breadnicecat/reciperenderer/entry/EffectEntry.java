@@ -1,5 +1,6 @@
 package cn.breadnicecat.reciperenderer.entry;
 
+import cn.breadnicecat.reciperenderer.utils.Attachment;
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import com.google.gson.JsonObject;
@@ -8,6 +9,8 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.effect.MobEffect;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.BiFunction;
 
 /**
@@ -26,6 +29,10 @@ public class EffectEntry implements StorableV2, Localizable {
 	public ResourceLocation id;
 	public String zh;
 	public String en;
+	/**
+	 * locale : name, en_us和zh_cn以外的语言
+	 */
+	public final Map<String, String> names = new TreeMap<>();
 	
 	public EffectEntry(ResourceLocation id, MobEffect effect) {
 		this.effect = effect;
@@ -48,11 +55,17 @@ public class EffectEntry implements StorableV2, Localizable {
 	}
 	
 	@Override
-	public int store(ExistHelper existHelper, BiFunction<String, byte @Nullable [], String> writer, JsonObject object, ExportLogger logger) {
+	public void setName(String locale, String name) {
+		names.put(locale, name);
+	}
+	
+	@Override
+	public int store(ExistHelper existHelper, BiFunction<String, @Nullable Attachment, String> writer, JsonObject object, ExportLogger logger) {
 		object.addProperty("id", id.toString());
 		object.addProperty("en", en);
 		object.addProperty("zh", zh);
-		object.addProperty("ico", writer.apply(existHelper.getModified("attachment/effect/" + id.getPath() + ".png"), ico));
+		LocalizableV2.storeExtra(object, names);
+		object.addProperty("ico", writer.apply(existHelper.getModified("attachment/effect/" + id.getPath() + ".png"), Attachment.of(ico)));
 		return 1;
 	}
 	
@@ -6,6 +6,9 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.enchantment.Enchantment;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * Created in 2024/7/10 下午3:02
  * Project: reciperenderer
@@ -23,6 +26,10 @@ public class EnchantEntry implements Localizable, Storable {
 	public int max;
 	public String zh;
 	public String en;
+	/**
+	 * locale : name, en_us和zh_cn以外的语言
+	 */
+	public final Map<String, String> names = new TreeMap<>();
 	
 	public EnchantEntry(ResourceLocation id, Enchantment value) {
 		this.id = id;
@@ -46,6 +53,11 @@ public class EnchantEntry implements Localizable, Storable {
 		this.en = en;
 	}
 	
+	@Override
+	public void setName(String locale, String name) {
+		names.put(locale, name);
+	}
+	
 	@Override
 	public int store(JsonObject object, ExportLogger logger) {
 		object.addProperty("id", id.toString());
@@ -53,6 +65,7 @@ public class EnchantEntry implements Localizable, Storable {
 		object.addProperty("zh", zh);
 		object.addProperty("min", min);
 		object.addProperty("max", max);
+		LocalizableV2.storeExtra(object, names);
 		return 2;
 	}
 }
@@ -1,20 +1,27 @@
 package cn.breadnicecat.reciperenderer.entry;
 
 import cn.breadnicecat.reciperenderer.render.EntityIcon;
+import cn.breadnicecat.reciperenderer.render.EntityPool;
 import cn.breadnicecat.reciperenderer.render.IconWrapper;
+import cn.breadnicecat.reciperenderer.render.RenderIdentity;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
+import cn.breadnicecat.reciperenderer.utils.ContentIndex;
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import com.google.gson.JsonObject;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
-import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
-import net.minecraft.world.entity.LivingEntity;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
+import static cn.breadnicecat.reciperenderer.Exporter.*;
+
 /**
  * Created in 2024/7/9 上午12:26
  * Project: reciperenderer
@@ -26,29 +33,48 @@ import java.util.function.BiFunction;
  **/
 public class EntityEntry implements Localizable, StorableV2, Closeable {
 	final EntityType<?> entityType;
-	final Entity entity;
+	/**
+	 * {@link RenderIdentity#entity},收集时用临时实体算好,条目本身不持有实体
+	 */
+	final String renderIdentity;
 	
 	public ResourceLocation id;
 	public String zh;
 	public String en;
+	/**
+	 * locale : name, en_us和zh_cn以外的语言
+	 */
+	public final Map<String, String> names = new TreeMap<>();
 	public IconWrapper ico32;
 	public IconWrapper ico128;
+	/**
+	 * size : icon
+	 */
+	public final Map<Integer, IconWrapper> extraIcons = new TreeMap<>();
 	
-	public EntityEntry(ResourceLocation id, LivingEntity entity) {
-		this.entityType = entity.getType();
+	/**
+	 * 图标渲染时才从{@link EntityPool}取出实体
+	 */
+	public EntityEntry(ResourceLocation id, EntityType<?> entityType, String renderIdentity) {
+		this.entityType = entityType;
 		this.id = id;
-		ico32 = new IconWrapper((pose) -> new EntityIcon(pose, 32, entity));
-		ico128 = new IconWrapper((pose) -> new EntityIcon(pose, 128, entity));
-		this.entity = entity;
+		this.renderIdentity = renderIdentity;
+		ico128 = new IconWrapper((pose) -> EntityPool.render(entityType, entity -> new EntityIcon(pose, 128, entity)));
+		ico32 = SINGLE_RENDER ? IconWrapper.scaled(ico128, 32, SCALE_FILTER) : new IconWrapper((pose) -> EntityPool.render(entityType, entity -> new EntityIcon(pose, 32, entity)));
+		for (int size : EXTRA_ICON_SIZES) {
+			extraIcons.put(size, IconWrapper.scaled(ico128, size, SCALE_FILTER));
+		}
 	}
 	
 	@Override
-	public int store(ExistHelper existHelper, BiFunction<String, byte @Nullable [], String> writer, JsonObject object, ExportLogger logger) {
+	public int store(ExistHelper existHelper, BiFunction<String, @Nullable Attachment, String> writer, JsonObject object, ExportLogger logger) {
 		object.addProperty("id", id.toString());
 		object.addProperty("zh", zh);
 		object.addProperty("en", en);
-		object.addProperty("ico128", writer.apply(existHelper.getModified("attachment/entity/" + id.getPath() + ".png"), ico128.getBytesBlocking(logger)));
-		object.addProperty("ico32", writer.apply(existHelper.getModified("attachment/entity32/" + id.getPath() + ".png"), ico32.getBytesBlocking(logger)));
+		LocalizableV2.storeExtra(object, names);
+		object.addProperty("ico128", writer.apply(existHelper.getModified("attachment/entity/" + id.getPath() + ".png"), ico128.getPngBlocking(logger)));
+		object.addProperty("ico32", writer.apply(existHelper.getModified("attachment/entity32/" + id.getPath() + ".png"), ico32.getPngBlocking(logger)));
+		extraIcons.forEach((size, ico) -> object.addProperty("ico" + size, writer.apply(existHelper.getModified("attachment/entity" + size + "/" + id.getPath() + ".png"), ico.getPngBlocking(logger))));
 		return 2;
 	}
 	
@@ -68,8 +94,36 @@ public class EntityEntry implements Localizable, StorableV2, Closeable {
 		this.en = en;
 	}
 	
+	@Override
+	public void setName(String locale, String name) {
+		names.put(locale, name);
+	}
+	
+	@Override
+	public String fingerprint() {
+		String s = String.join("\n", id.toString(), en, zh, names.toString(), renderIdentity);
+		return ContentIndex.hash(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public Collection<IconWrapper> icons() {
+		List<IconWrapper> icons = new ArrayList<>(extraIcons.size() + 2);
+		icons.add(ico32);
+		icons.add(ico128);
+		icons.addAll(extraIcons.values());
+		return icons;
+	}
+	
+	@Override
+	public CompletableFuture<?> whenReady() {
+		return CompletableFuture.allOf(ico32.getPngFuture(), ico128.getPngFuture(),
+				CompletableFuture.allOf(extraIcons.values().stream().map(IconWrapper::getPngFuture).toArray(CompletableFuture[]::new)));
+	}
+	
 	@Override
 	public void close() {
+		ico32.clear();
 		ico128.clear();
+		extraIcons.values().forEach(IconWrapper::clear);
 	}
 }
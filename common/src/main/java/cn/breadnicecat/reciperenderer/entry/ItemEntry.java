@@ -2,10 +2,20 @@ package cn.breadnicecat.reciperenderer.entry;
 
 import cn.breadnicecat.reciperenderer.render.IconWrapper;
 import cn.breadnicecat.reciperenderer.render.ItemIcon;
+import cn.breadnicecat.reciperenderer.render.RenderIdentity;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
+import cn.breadnicecat.reciperenderer.utils.ContentIndex;
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import cn.breadnicecat.reciperenderer.utils.ItemState;
+import cn.breadnicecat.reciperenderer.utils.Localizer;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.core.component.DataComponentPatch;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.food.FoodProperties;
@@ -14,10 +24,13 @@ import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
+import static cn.breadnicecat.reciperenderer.Exporter.*;
+
 /**
  * Created in 2024/7/8 下午10:53
  * Project: reciperenderer
@@ -36,21 +49,38 @@ public class ItemEntry implements LocalizableV2, StorableV2, Closeable {
 	public String[] tags;
 	public String en;
 	public String zh;
+	/**
+	 * locale : name, en_us和zh_cn以外的语言
+	 */
+	public final Map<String, String> names = new TreeMap<>();
 	//	public CompoundTag nbt;
 	public IconWrapper ico32;
 	public IconWrapper ico128;
+	/**
+	 * size : icon
+	 */
+	public final Map<Integer, IconWrapper> extraIcons = new TreeMap<>();
 	//
 	public int nutrition;
 	public float saturation;
 	//
 	public LinkedList<CreativeModeTab> tabs = new LinkedList<>();
 	public LinkedList<String> tabNames = new LinkedList<>();
+	/**
+	 * 收集时在渲染线程上算好,null时不参与增量导出
+	 *
+	 * @see RenderIdentity#item(ItemStack)
+	 */
+	public @Nullable String renderIdentity;
 	
 	public ItemEntry(ResourceLocation id, ItemState state) {
 		this.stack = state.stack;
 		this.id = id;
-		ico32 = new IconWrapper((pose) -> new ItemIcon(pose, 32, stack));
-		ico128 = new IconWrapper((pose) -> new ItemIcon(pose, 128, stack));
+		ico128 = new IconWrapper(new ItemIcon.Factory(128, stack));
+		ico32 = SINGLE_RENDER ? IconWrapper.scaled(ico128, 32, SCALE_FILTER) : new IconWrapper(new ItemIcon.Factory(32, stack));
+		for (int size : EXTRA_ICON_SIZES) {
+			extraIcons.put(size, IconWrapper.scaled(ico128, size, SCALE_FILTER));
+		}
 		stackSize = stack.getMaxStackSize();
 		durability = stack.getMaxDamage();
 		tags = stack.getTags().map(i -> i.location().toString()).toArray(String[]::new);
@@ -67,36 +97,116 @@ public class ItemEntry implements LocalizableV2, StorableV2, Closeable {
 	}
 	
 	@Override
-	public void localizeZh() {
-		zh = stack.getHoverName().getString();
-		tabs.forEach(i -> tabNames.add(i.getDisplayName().getString()));
-	}
-	
-	@Override
-	public void localizeEn() {
-		en = stack.getHoverName().getString();
+	public void localize(String locale, Localizer localizer) {
+		String name = localizer.resolve(stack.getHoverName());
+		switch (locale) {
+			case "zh_cn" -> {
+				zh = name;
+				tabs.forEach(i -> tabNames.add(localizer.resolve(i.getDisplayName())));
+			}
+			case "en_us" -> en = name;
+			default -> names.put(locale, name);
+		}
 	}
 	
 	@Override
-	public int store(ExistHelper existHelper, BiFunction<String, byte @Nullable [], String> writer, JsonObject object, ExportLogger logger) {
+	public int store(ExistHelper existHelper, BiFunction<String, @Nullable Attachment, String> writer, JsonObject object, ExportLogger logger) {
 		object.addProperty("id", id.toString());
 		object.addProperty("en", en);
 		object.addProperty("zh", zh);
-		object.addProperty("tabs", tabNames.toString());
-		object.addProperty("tags", Arrays.toString(tags));
+		LocalizableV2.storeExtra(object, names);
+		object.add("tabs", toArray(tabNames));
+		object.add("tags", toArray(Arrays.asList(tags)));
 		object.addProperty("stackSize", stackSize);
 		object.addProperty("durability", durability);
 //		object.addProperty("nbt", CompoundTag.CODEC.encodeStart(JsonOps.INSTANCE, nbt).get().orThrow().toString());
 		object.addProperty("nut", nutrition);
 		object.addProperty("sat", saturation);
-		object.addProperty("ico32", writer.apply(existHelper.getModified("attachment/ico32/" + id.getPath() + ".png"), ico32.getBytesBlocking(logger)));
-		object.addProperty("ico128", writer.apply(existHelper.getModified("attachment/ico128/" + id.getPath() + ".png"), ico128.getBytesBlocking(logger)));
+		object.addProperty("ico32", writer.apply(existHelper.getModified("attachment/ico32/" + id.getPath() + ".png"), ico32.getPngBlocking(logger)));
+		object.addProperty("ico128", writer.apply(existHelper.getModified("attachment/ico128/" + id.getPath() + ".png"), ico128.getPngBlocking(logger)));
+		extraIcons.forEach((size, ico) -> object.addProperty("ico" + size, writer.apply(existHelper.getModified("attachment/ico" + size + "/" + id.getPath() + ".png"), ico.getPngBlocking(logger))));
 		return 4;
 	}
 	
+	private static JsonArray toArray(Collection<String> list) {
+		JsonArray array = new JsonArray(list.size());
+		list.forEach(array::add);
+		return array;
+	}
+	
+	/**
+	 * 旧格式里tabs和tags是List.toString()/Arrays.toString()的结果
+	 */
+	@Override
+	public void toLegacy(JsonObject object) {
+		for (String key : new String[]{"tabs", "tags"}) {
+			StringJoiner joiner = new StringJoiner(", ", "[", "]");
+			object.getAsJsonArray(key).forEach(i -> joiner.add(i.getAsString()));
+			object.addProperty(key, joiner.toString());
+		}
+	}
+	
+	@Override
+	public @Nullable String fingerprint() {
+		if (renderIdentity == null) return null;
+		String components = encodeComponents(stack);
+		if (components == null) return null;
+		String s = String.join("\n", id.toString(), components, en, zh, names.toString(), tabNames.toString(), Arrays.toString(tags),
+				String.valueOf(stackSize), String.valueOf(durability), String.valueOf(nutrition), String.valueOf(saturation), renderIdentity);
+		return ContentIndex.hash(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * 组件的toString不一定稳定(没覆写时是Class@hash),也不一定包含全部字段,所以用codec编码成json再排序键
+	 *
+	 * @return 有组件无法编码(没有codec等)时为null,这样的物品不参与增量导出
+	 */
+	private static @Nullable String encodeComponents(ItemStack stack) {
+		ClientLevel level = Minecraft.getInstance().level;
+		if (level == null) return null;
+		try {
+			return DataComponentPatch.CODEC.encodeStart(level.registryAccess().createSerializationContext(JsonOps.INSTANCE), stack.getComponentsPatch())
+					.result()
+					.map(json -> sorted(json).toString())
+					.orElse(null);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	private static JsonElement sorted(JsonElement json) {
+		if (json instanceof JsonObject object) {
+			JsonObject result = new JsonObject();
+			new TreeMap<>(object.asMap()).forEach((k, v) -> result.add(k, sorted(v)));
+			return result;
+		}
+		if (json instanceof JsonArray array) {
+			JsonArray result = new JsonArray(array.size());
+			array.forEach(i -> result.add(sorted(i)));
+			return result;
+		}
+		return json;
+	}
+	
+	@Override
+	public Collection<IconWrapper> icons() {
+		List<IconWrapper> icons = new ArrayList<>(extraIcons.size() + 2);
+		icons.add(ico32);
+		icons.add(ico128);
+		icons.addAll(extraIcons.values());
+		return icons;
+	}
+	
+	@Override
+	public CompletableFuture<?> whenReady() {
+		return CompletableFuture.allOf(ico32.getPngFuture(), ico128.getPngFuture(),
+				CompletableFuture.allOf(extraIcons.values().stream().map(IconWrapper::getPngFuture).toArray(CompletableFuture[]::new)));
+	}
+	
 	@Override
 	public void close() {
 		ico32.clear();
 		ico128.clear();
+		extraIcons.values().forEach(IconWrapper::clear);
 	}
 }
@@ -1,5 +1,6 @@
 package cn.breadnicecat.reciperenderer.entry;
 
+import cn.breadnicecat.reciperenderer.utils.Localizer;
 import net.minecraft.network.chat.Component;
 
 /**
@@ -13,13 +14,13 @@ import net.minecraft.network.chat.Component;
  **/
 public interface Localizable extends LocalizableV2 {
 	@Override
-	default void localizeZh() {
-		setZh(getName().getString());
-	}
-	
-	@Override
-	default void localizeEn() {
-		setEn(getName().getString());
+	default void localize(String locale, Localizer localizer) {
+		String name = localizer.resolve(getName());
+		switch (locale) {
+			case "zh_cn" -> setZh(name);
+			case "en_us" -> setEn(name);
+			default -> setName(locale, name);
+		}
 	}
 	
 	Component getName();
@@ -27,4 +28,6 @@ public interface Localizable extends LocalizableV2 {
 	void setZh(String zh);
 	
 	void setEn(String en);
+	
+	void setName(String locale, String name);
 }
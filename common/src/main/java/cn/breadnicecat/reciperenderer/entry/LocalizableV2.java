@@ -1,5 +1,10 @@
 package cn.breadnicecat.reciperenderer.entry;
 
+import cn.breadnicecat.reciperenderer.utils.Localizer;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
 /**
  * Created in 2024/7/9 上午12:10
  * Project: reciperenderer
@@ -10,7 +15,20 @@ package cn.breadnicecat.reciperenderer.entry;
  * <p>
  **/
 public interface LocalizableV2 {
-	void localizeZh();
+	/**
+	 * 可能在任意线程调用,同一个条目的所有语言会在同一个线程上依次完成
+	 *
+	 * @param locale 例如zh_cn
+	 */
+	void localize(String locale, Localizer localizer);
 	
-	void localizeEn();
+	/**
+	 * en_us和zh_cn以外的语言统一写在"lang"里,没有时不写
+	 */
+	static void storeExtra(JsonObject object, Map<String, String> names) {
+		if (names.isEmpty()) return;
+		JsonObject lang = new JsonObject();
+		names.forEach(lang::addProperty);
+		object.add("lang", lang);
+	}
 }
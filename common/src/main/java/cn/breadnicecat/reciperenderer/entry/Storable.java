@@ -1,5 +1,6 @@
 package cn.breadnicecat.reciperenderer.entry;
 
+import cn.breadnicecat.reciperenderer.utils.Attachment;
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import com.google.gson.JsonObject;
@@ -23,7 +24,7 @@ public interface Storable extends StorableV2 {
 	int store(JsonObject object, ExportLogger logger);
 	
 	@Override
-	default int store(ExistHelper existHelper, BiFunction<String, byte @Nullable [], String> writer, JsonObject object, ExportLogger logger) {
+	default int store(ExistHelper existHelper, BiFunction<String, @Nullable Attachment, String> writer, JsonObject object, ExportLogger logger) {
 		return store(object, logger);
 	}
 }
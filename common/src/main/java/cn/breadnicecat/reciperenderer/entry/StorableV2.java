@@ -1,10 +1,15 @@
 package cn.breadnicecat.reciperenderer.entry;
 
+import cn.breadnicecat.reciperenderer.render.IconWrapper;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
 import cn.breadnicecat.reciperenderer.utils.ExistHelper;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
 /**
@@ -18,8 +23,40 @@ import java.util.function.BiFunction;
  **/
 public interface StorableV2 {
 	/**
-	 * @param extraWriter <将要写入的path，数据byte[]> 如果写入成功则返回完整的引用路径，否则为null
+	 * @param extraWriter <将要写入的path，数据(写入后仍由调用者持有,写入器不会close)> 如果写入成功则返回完整的引用路径，否则为null
 	 */
-	int store(ExistHelper existHelper, BiFunction<String, byte @Nullable [], String> extraWriter, JsonObject object, ExportLogger logger);
+	int store(ExistHelper existHelper, BiFunction<String, @Nullable Attachment, String> extraWriter, JsonObject object, ExportLogger logger);
 	
+	/**
+	 * store写入的是完整的结构(数组就是JsonArray),二进制表(.rrb)和导出清单都用它;
+	 * 写入.jsons前会经过这里,把个别字段转回旧的格式以保持兼容
+	 */
+	default void toLegacy(JsonObject object) {
+	}
+	
+	/**
+	 * 附件(图标等)全部准备好时完成,store时就不需要再等待
+	 * <p>
+	 * 条目进入写入窗口时会先调用一次,好让附件在就绪的那一刻就开始编码
+	 */
+	default CompletableFuture<?> whenReady() {
+		return CompletableFuture.completedFuture(null);
+	}
+	
+	/**
+	 * 条目会提交渲染的所有图标,用来计入{@link cn.breadnicecat.reciperenderer.render.RenderBudget}
+	 */
+	default Collection<IconWrapper> icons() {
+		return List.of();
+	}
+	
+	/**
+	 * 决定store结果(包括附件)的全部内容的指纹,与上一次导出相同时直接复用上一次的结果,不再渲染和store
+	 *
+	 * @return null表示不参与增量导出
+	 * @see cn.breadnicecat.reciperenderer.ExportManifest
+	 */
+	default @Nullable String fingerprint() {
+		return null;
+	}
 }
@@ -0,0 +1,24 @@
+package cn.breadnicecat.reciperenderer.mixin;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Created in 2026/10/17 10:06
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 直接拿像素指针,省去一次拷贝
+ * <p>
+ **/
+@Mixin(NativeImage.class)
+public interface MixinNativeImage {
+	@Accessor("pixels")
+	long getPixels();
+	
+	static long pixelsOf(NativeImage image) {
+		return ((MixinNativeImage) (Object) image).getPixels();
+	}
+}
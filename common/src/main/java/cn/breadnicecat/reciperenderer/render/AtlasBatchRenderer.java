@@ -0,0 +1,124 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import cn.breadnicecat.reciperenderer.utils.PoseOffset;
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.VertexSorting;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.entity.ItemRenderer;
+import net.minecraft.util.profiling.ProfilerFiller;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+
+/**
+ * Created in 2026/10/17 11:10
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 把一批物品图标按网格画进同一个大RenderTarget,一次绘制,一次回读,再切成单个图标
+ * <p>
+ * 每个格子绘制时都用scissor裁剪,超出格子的部分与单独渲染时一样被丢掉
+ * <p>
+ * 只有工厂是{@link ItemIcon.Factory}且没有持有者的包装器会被合批,其它的退回到{@link IconWrapper#renderAsync()}
+ * <p>
+ **/
+@Environment(EnvType.CLIENT)
+public class AtlasBatchRenderer {
+	/**
+	 * 图集边长,实际会被显卡支持的最大纹理尺寸限制
+	 */
+	public static int ATLAS_SIZE = Integer.getInteger("reciperenderer.atlasSize", 2048);
+	
+	private static final Minecraft instance = Minecraft.getInstance();
+	
+	/**
+	 * 只能在渲染线程调用,结果会在回读完成后通过{@link IconWrapper#getFuture()}给出
+	 */
+	public static void renderAsync(List<IconWrapper> wrappers) {
+		Map<Integer, List<IconWrapper>> bySize = new LinkedHashMap<>();
+		for (IconWrapper wrapper : wrappers) {
+			if (wrapper.isDerived()) continue;
+			if (wrapper.getFactory() instanceof ItemIcon.Factory f && f.holder() == null) {
+				bySize.computeIfAbsent(f.size(), k -> new ArrayList<>()).add(wrapper);
+			} else {
+				wrapper.renderAsync();
+			}
+		}
+		int atlas = Math.min(ATLAS_SIZE, RenderSystem.maxSupportedTextureSize());
+		bySize.forEach((size, list) -> {
+			if (list.size() == 1 || size > atlas) {
+				list.forEach(IconWrapper::renderAsync);
+				return;
+			}
+			int cells = (atlas / size) * (atlas / size);
+			for (int i = 0; i < list.size(); i += cells) {
+				renderPage(list.subList(i, Math.min(list.size(), i + cells)), size, atlas / size);
+			}
+		});
+	}
+	
+	private static void renderPage(List<IconWrapper> page, int size, int maxCols) {
+		ProfilerFiller profiler = instance.getProfiler();
+		profiler.push("render_AtlasBatch");
+		int cols = Math.min(page.size(), maxCols);
+		int rows = (page.size() + cols - 1) / cols;
+		RenderTarget target = RenderTargetPool.acquire(cols * size, rows * size, true);
+		NativeImage atlas = new NativeImage(target.width, target.height, false);
+		List<CompletableFuture<IIcon>> futures = page.stream().map(IconWrapper::pending).toList();
+		RenderSystem.backupProjectionMatrix();
+		PboReadback.beginCapture();
+		try {
+			Matrix4f p = new Matrix4f().setOrtho(0, 16 * cols, 16 * rows, 0, -1000, 1000);
+			RenderSystem.setProjectionMatrix(p, VertexSorting.ORTHOGRAPHIC_Z);
+			target.bindWrite(true);
+			ItemRenderer renderer = instance.getItemRenderer();
+			int cellW = target.width / cols, cellH = target.height / rows;
+			for (int i = 0; i < page.size(); i++) {
+				var f = (ItemIcon.Factory) page.get(i).getFactory();
+				//超出16x16的模型(大型方块、自定义渲染器)不能画到相邻的格子里,与单独渲染时一样被裁掉
+				RenderSystem.enableScissor((i % cols) * cellW, target.height - (i / cols + 1) * cellH, cellW, cellH);
+				try {
+					ItemIcon.draw(instance, f.stack(), renderer.getModel(f.stack(), null, null, 0), renderer,
+							PoseOffset.NONE, size, (i % cols) * 16, (i / cols) * 16);
+				} finally {
+					RenderSystem.disableScissor();
+				}
+			}
+			PboReadback.download(target, atlas);
+		} catch (Exception e) {
+			LOGGER.error("合批渲染失败,共" + page.size() + "个图标", e);
+			PboReadback.endCapture(() -> {
+			});
+			atlas.close();
+			futures.forEach(f -> f.completeExceptionally(e));
+			return;
+		} finally {
+			RenderSystem.restoreProjectionMatrix();
+			RenderTargetPool.release(target);
+			instance.getMainRenderTarget().bindWrite(true);
+			profiler.pop();
+		}
+		PboReadback.endCapture(() -> {
+			try {
+				for (int i = 0; i < page.size(); i++) {
+					NativeImage cell = new NativeImage(size, size, false);
+					atlas.copyRect(cell, (i % cols) * size, (i / cols) * size, 0, 0, size, size, false, false);
+					futures.get(i).complete(new ImageIcon(cell));
+				}
+			} finally {
+				atlas.close();
+			}
+		});
+	}
+}
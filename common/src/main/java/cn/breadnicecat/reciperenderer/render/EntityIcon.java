@@ -2,7 +2,6 @@ package cn.breadnicecat.reciperenderer.render;
 
 import cn.breadnicecat.reciperenderer.utils.PoseOffset;
 import com.mojang.blaze3d.pipeline.RenderTarget;
-import com.mojang.blaze3d.pipeline.TextureTarget;
 import com.mojang.blaze3d.platform.Lighting;
 import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.blaze3d.systems.RenderSystem;
@@ -42,7 +41,7 @@ public class EntityIcon implements IIcon {
 		profiler.push("render_EntityIcon");
 		//开始
 		GuiGraphics graphics = new GuiGraphics(instance, instance.renderBuffers().bufferSource());
-		RenderTarget target = new TextureTarget(size, size, true, Minecraft.ON_OSX);
+		RenderTarget target = RenderTargetPool.acquire(size, size, true);
 		target.bindWrite(true);
 		
 		final float rotateX = -22.5f + offset.xRot(),
@@ -88,11 +87,9 @@ public class EntityIcon implements IIcon {
 		stack.popPose();
 		//收尾
 		RenderSystem.restoreProjectionMatrix();
-		target.bindRead();
 		image = new NativeImage(target.width, target.height, false);
-		image.downloadTexture(0, false);
-		image.flipY();
-		target.destroyBuffers();
+		PboReadback.download(target, image);
+		RenderTargetPool.release(target);
 		instance.getMainRenderTarget().bindWrite(true);
 		profiler.pop();
 	}
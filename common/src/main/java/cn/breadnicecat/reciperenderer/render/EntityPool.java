@@ -0,0 +1,124 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import com.google.gson.JsonObject;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Created in 2026/10/17 23:58
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 渲染实体图标时才创建实体,用完放回池里,只能在渲染线程使用
+ * <p>
+ * 新建的同类实体渲染出来是一样的,所以按EntityType复用: 同一个实体的128/32图标、批量导出里重复的类型都共用一个实例;
+ * 池是按最近使用排序的,超过{@link #MAX_IDLE}或闲置超过{@link #IDLE_MS}的实体会被discard
+ * <p>
+ **/
+@Environment(EnvType.CLIENT)
+public class EntityPool {
+	public static int MAX_IDLE = Integer.getInteger("reciperenderer.entityPool", 4);
+	public static long IDLE_MS = Long.getLong("reciperenderer.entityIdleMs", 2_000L);
+	
+	private static final LinkedHashMap<EntityType<?>, Idle> idle = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * 只在渲染线程上修改,/rr status在别的线程上读
+	 */
+	private static volatile int created;
+	
+	/**
+	 * @return 无法创建或者不是LivingEntity时为null
+	 */
+	public static <T> @Nullable T render(EntityType<?> type, Function<LivingEntity, T> render) {
+		RenderSystem.assertOnRenderThread();
+		Idle cached = idle.remove(type);
+		LivingEntity entity;
+		//换了世界的话池里的实体还指着旧的ClientLevel,不能再用
+		if (cached != null && cached.entity.level() == Minecraft.getInstance().level) {
+			entity = cached.entity;
+		} else {
+			if (cached != null) cached.entity.discard();
+			Entity e = type.create(Minecraft.getInstance().level);
+			if (!(e instanceof LivingEntity le)) {
+				if (e != null) e.discard();
+				return null;
+			}
+			entity = le;
+			created++;
+		}
+		try {
+			return render.apply(entity);
+		} finally {
+			idle.put(type, new Idle(entity, Util.getMillis()));
+			trim();
+		}
+	}
+	
+	/**
+	 * 每帧调用,丢弃闲置过久的实体
+	 */
+	public static void evictIdle() {
+		if (idle.isEmpty()) return;
+		long now = Util.getMillis();
+		Iterator<Idle> it = idle.values().iterator();
+		//迭代顺序就是最久没用到的在前
+		while (it.hasNext()) {
+			Idle i = it.next();
+			if (now - i.since <= IDLE_MS) break;
+			i.entity.discard();
+			it.remove();
+		}
+	}
+	
+	/**
+	 * 离开世界时调用,不再持有旧的ClientLevel
+	 */
+	public static void clear() {
+		RenderSystem.assertOnRenderThread();
+		idle.values().forEach(i -> i.entity.discard());
+		idle.clear();
+	}
+	
+	/**
+	 * 从启动开始总共创建过的实体数,用来估计复用的效果
+	 */
+	public static int getCreated() {
+		return created;
+	}
+	
+	public static String describe() {
+		return "实体池: 空闲" + idle.size() + "/" + MAX_IDLE + "个, 共创建" + created + "个";
+	}
+	
+	public static JsonObject toJson() {
+		JsonObject object = new JsonObject();
+		object.addProperty("idle", idle.size());
+		object.addProperty("max_idle", MAX_IDLE);
+		object.addProperty("created", created);
+		return object;
+	}
+	
+	private static void trim() {
+		Iterator<Map.Entry<EntityType<?>, Idle>> it = idle.entrySet().iterator();
+		while (idle.size() > MAX_IDLE && it.hasNext()) {
+			it.next().getValue().entity.discard();
+			it.remove();
+		}
+	}
+	
+	private record Idle(LivingEntity entity, long since) {
+	}
+}
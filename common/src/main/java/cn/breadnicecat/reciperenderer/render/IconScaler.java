@@ -0,0 +1,168 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+
+/**
+ * Created in 2026/10/17 13:33
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 纯CPU的图标缩放,可以在任意线程调用
+ * <p>
+ * BOX和LANCZOS在预乘alpha的空间里做可分离的两次一维重采样,避免透明边缘发黑
+ * <p>
+ **/
+public class IconScaler {
+	public enum Filter {
+		/**
+		 * 适合像素风物品
+		 */
+		NEAREST(0),
+		BOX(0.5),
+		LANCZOS(3);
+		
+		/**
+		 * 核在源像素尺度下的半径(会再乘缩放比)
+		 */
+		final double radius;
+		
+		Filter(double radius) {
+			this.radius = radius;
+		}
+		
+		double weight(double t) {
+			return switch (this) {
+				case NEAREST -> 1;
+				case BOX -> t >= -0.5 && t < 0.5 ? 1 : 0;
+				case LANCZOS -> t == 0 ? 1 : Math.abs(t) >= 3 ? 0 : sinc(t) * sinc(t / 3);
+			};
+		}
+		
+		private static double sinc(double x) {
+			x *= Math.PI;
+			return Math.sin(x) / x;
+		}
+	}
+	
+	public static NativeImage scale(NativeImage src, int size, Filter filter) {
+		int sw = src.getWidth(), sh = src.getHeight();
+		int[] in = new int[sw * sh];
+		for (int y = 0; y < sh; y++) {
+			for (int x = 0; x < sw; x++) {
+				in[y * sw + x] = src.getPixelRGBA(x, y);
+			}
+		}
+		int[] out = scale(in, sw, sh, size, size, filter);
+		NativeImage dst = new NativeImage(size, size, false);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				dst.setPixelRGBA(x, y, out[y * size + x]);
+			}
+		}
+		return dst;
+	}
+	
+	/**
+	 * @param src 0xAABBGGRR(NativeImage的格式),只要求alpha在最高8位
+	 */
+	public static int[] scale(int[] src, int sw, int sh, int dw, int dh, Filter filter) {
+		if (sw == dw && sh == dh) return src.clone();
+		if (filter == Filter.NEAREST) return nearest(src, sw, sh, dw, dh);
+		float[] buf = premultiply(src);
+		//横向缩放后转置,再横向缩放一次再转置回来
+		buf = transpose(resampleRows(buf, sw, sh, dw, filter), dw, sh);
+		buf = transpose(resampleRows(buf, sh, dw, dh, filter), dh, dw);
+		return unpremultiply(buf);
+	}
+	
+	private static int[] nearest(int[] src, int sw, int sh, int dw, int dh) {
+		int[] out = new int[dw * dh];
+		for (int y = 0; y < dh; y++) {
+			int sy = (int) ((y + 0.5) * sh / dh);
+			for (int x = 0; x < dw; x++) {
+				int sx = (int) ((x + 0.5) * sw / dw);
+				out[y * dw + x] = src[sy * sw + sx];
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * 对每一行做一维重采样,w->dw
+	 */
+	private static float[] resampleRows(float[] in, int w, int h, int dw, Filter filter) {
+		double scale = (double) w / dw;
+		//放大时核不需要拉伸
+		double stretch = Math.max(1, scale);
+		double support = filter.radius * stretch;
+		float[] out = new float[dw * h * 4];
+		for (int x = 0; x < dw; x++) {
+			double center = (x + 0.5) * scale - 0.5;
+			int from = Math.max(0, (int) Math.floor(center - support));
+			int to = Math.min(w - 1, (int) Math.ceil(center + support));
+			double[] weights = new double[to - from + 1];
+			double sum = 0;
+			for (int i = from; i <= to; i++) {
+				sum += weights[i - from] = filter.weight((i - center) / stretch);
+			}
+			if (sum == 0) {
+				//核太窄时退化成最近邻
+				int i = Math.min(w - 1, Math.max(0, (int) Math.round(center)));
+				weights = new double[to - from + 1];
+				if (i >= from && i <= to) weights[i - from] = sum = 1;
+			}
+			for (int y = 0; y < h; y++) {
+				int o = (y * dw + x) * 4;
+				for (int i = from; i <= to; i++) {
+					double wt = weights[i - from] / sum;
+					if (wt == 0) continue;
+					int s = (y * w + i) * 4;
+					out[o] += (float) (in[s] * wt);
+					out[o + 1] += (float) (in[s + 1] * wt);
+					out[o + 2] += (float) (in[s + 2] * wt);
+					out[o + 3] += (float) (in[s + 3] * wt);
+				}
+			}
+		}
+		return out;
+	}
+	
+	private static float[] transpose(float[] in, int w, int h) {
+		float[] out = new float[in.length];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				System.arraycopy(in, (y * w + x) * 4, out, (x * h + y) * 4, 4);
+			}
+		}
+		return out;
+	}
+	
+	private static float[] premultiply(int[] src) {
+		float[] out = new float[src.length * 4];
+		for (int i = 0; i < src.length; i++) {
+			int p = src[i];
+			float a = (p >>> 24) / 255f;
+			out[i * 4] = (p & 0xFF) * a;
+			out[i * 4 + 1] = (p >>> 8 & 0xFF) * a;
+			out[i * 4 + 2] = (p >>> 16 & 0xFF) * a;
+			out[i * 4 + 3] = a;
+		}
+		return out;
+	}
+	
+	private static int[] unpremultiply(float[] in) {
+		int[] out = new int[in.length / 4];
+		for (int i = 0; i < out.length; i++) {
+			float a = in[i * 4 + 3];
+			if (a <= 0) continue;
+			int c0 = clamp(in[i * 4] / a), c1 = clamp(in[i * 4 + 1] / a), c2 = clamp(in[i * 4 + 2] / a);
+			out[i] = clamp(a * 255) << 24 | c2 << 16 | c1 << 8 | c0;
+		}
+		return out;
+	}
+	
+	private static int clamp(float v) {
+		return Math.max(0, Math.min(255, Math.round(v)));
+	}
+}
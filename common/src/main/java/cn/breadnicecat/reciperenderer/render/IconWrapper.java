@@ -1,17 +1,23 @@
 package cn.breadnicecat.reciperenderer.render;
 
+import cn.breadnicecat.reciperenderer.RecipeRenderer;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
 import cn.breadnicecat.reciperenderer.utils.ExportLogger;
 import cn.breadnicecat.reciperenderer.utils.PoseOffset;
+import cn.breadnicecat.reciperenderer.utils.SpanProfiler;
+import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.serialization.DataResult;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
-import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.EXECUTOR;
 
 /**
  * Created in 2024/7/25 上午2:10
@@ -26,25 +32,112 @@ public class IconWrapper {
 	private static final AtomicInteger ids = new AtomicInteger();
 	public final String wrapId = "0x" + Integer.toString(ids.incrementAndGet(), 16);
 	private Function<PoseOffset, IIcon> factory;
-	private volatile DataResult<IIcon> last;
+	/**
+	 * 当前这一次渲染的结果,clear后换成新的
+	 */
+	private volatile CompletableFuture<IIcon> future = new CompletableFuture<>();
+	private volatile @Nullable CompletableFuture<Attachment> pngFuture;
+	/**
+	 * 正在别的线程上读当前这次结果像素的任务(编码、缩放图标的缩放),clear时要等它们结束才能释放图标
+	 */
+	private List<CompletableFuture<?>> readers = new ArrayList<>();
+	/**
+	 * 不为null时本图标由source缩放得到,自己不参与渲染
+	 */
+	private @Nullable IconWrapper source;
+	/**
+	 * 不为null时记录缩放/编码/等待的耗时
+	 */
+	private volatile @Nullable SpanProfiler profiler;
 	
 	public IconWrapper(Function<PoseOffset, IIcon> factory) {
 		this.factory = factory;
 	}
 	
+	/**
+	 * 由source下一次渲染的结果在{@link RecipeRenderer#EXECUTOR}上缩放得到,不会占用任何GPU时间
+	 * <p>
+	 * 直接调用{@link #render(PoseOffset)}时会同步渲染source再缩放(预览用)
+	 */
+	public static IconWrapper scaled(IconWrapper source, int size, IconScaler.Filter filter) {
+		IconWrapper w = new IconWrapper(pose -> {
+			try (IIcon icon = source.getFactory().apply(pose)) {
+				return new ImageIcon(IconScaler.scale(icon.getImage(), size, filter));
+			}
+		});
+		w.source = source;
+		CompletableFuture<IIcon> target = w.pending();
+		//缩放也在读source的像素,source被clear时要等缩放完成
+		source.read(true, icon -> {
+			long start = System.nanoTime();
+			NativeImage image = IconScaler.scale(icon.getImage(), size, filter);
+			SpanProfiler p = w.profiler;
+			if (p != null) p.record("icon/scale", System.nanoTime() - start);
+			return image;
+		}).whenComplete((image, e) -> {
+			if (e != null) target.completeExceptionally(e);
+			else target.complete(new ImageIcon(image));
+		});
+		return w;
+	}
+	
+	public IconWrapper setProfiler(@Nullable SpanProfiler profiler) {
+		this.profiler = profiler;
+		return this;
+	}
+	
+	public boolean isDerived() {
+		return source != null;
+	}
+	
+	public Function<PoseOffset, IIcon> getFactory() {
+		return factory;
+	}
+	
+	/**
+	 * 下一次渲染结果会写入的future,已经有结果(没有clear就重复渲染)时换一个新的,旧结果交给调用者自己处理
+	 * <p>
+	 * 异步渲染要在开始时拿到它,防止回读完成前被clear换掉后写错地方
+	 */
+	public CompletableFuture<IIcon> pending() {
+		synchronized (this) {
+			CompletableFuture<IIcon> f = future;
+			if (f.isDone()) {
+				future = f = new CompletableFuture<>();
+				readers = new ArrayList<>();
+				releasePng();
+			}
+			return f;
+		}
+	}
+	
+	/**
+	 * 由外部渲染器直接给出结果
+	 */
+	public void complete(DataResult<IIcon> result) {
+		complete(pending(), result);
+	}
+	
+	private static void complete(CompletableFuture<IIcon> f, DataResult<IIcon> result) {
+		result.ifSuccess(f::complete)
+				.ifError(e -> f.completeExceptionally(new IllegalStateException(e.message())));
+	}
+	
 	@Environment(EnvType.CLIENT)
 	public DataResult<IIcon> render(PoseOffset pose) {
+		DataResult<IIcon> result;
 		try {
 			IIcon apply = factory.apply(pose);
 			if (apply != null) {
-				last = DataResult.success(apply);
+				result = DataResult.success(apply);
 			} else {
-				last = DataResult.error(() -> "未知渲染错误,wrapId" + wrapId);
+				result = DataResult.error(() -> "未知渲染错误,wrapId" + wrapId);
 			}
 		} catch (Exception e) {
-			last = DataResult.error(() -> e + ",wrapId=" + wrapId);
+			result = DataResult.error(() -> e + ",wrapId=" + wrapId);
 		}
-		return last;
+		complete(result);
+		return result;
 	}
 	
 	@Environment(EnvType.CLIENT)
@@ -52,41 +145,129 @@ public class IconWrapper {
 		return render(PoseOffset.NONE);
 	}
 	
+	/**
+	 * 异步回读版本的{@link #render(PoseOffset)},绘制完立即返回,{@link #getFuture()}会在回读完成的那一帧才完成
+	 *
+	 * @see PboReadback
+	 */
+	@Environment(EnvType.CLIENT)
+	public void renderAsync(PoseOffset pose) {
+		//由source完成
+		if (source != null) return;
+		CompletableFuture<IIcon> f = pending();
+		PboReadback.beginCapture();
+		IIcon apply;
+		try {
+			apply = factory.apply(pose);
+		} catch (Exception e) {
+			PboReadback.endCapture(() -> complete(f, DataResult.error(() -> e + ",wrapId=" + wrapId)));
+			return;
+		}
+		PboReadback.endCapture(() -> {
+			if (apply != null) {
+				complete(f, DataResult.success(apply));
+			} else {
+				complete(f, DataResult.error(() -> "未知渲染错误,wrapId" + wrapId));
+			}
+		});
+	}
+	
+	@Environment(EnvType.CLIENT)
+	public void renderAsync() {
+		renderAsync(PoseOffset.NONE);
+	}
+	
 	public void clear() {
-		if (last != null) {
-			last.result().ifPresent(IIcon::close);
-			last = null;
+		CompletableFuture<IIcon> f;
+		List<CompletableFuture<?>> busy;
+		synchronized (this) {
+			f = future;
+			future = new CompletableFuture<>();
+			busy = readers;
+			readers = new ArrayList<>();
+			releasePng();
 		}
+		//还没渲染完的等渲染完,还有任务在读像素的等它们读完(成功失败都一样)再释放,否则是读已经释放的内存
+		CompletableFuture.allOf(busy.toArray(CompletableFuture[]::new))
+				.handle((r, e) -> null)
+				.thenRun(() -> f.thenAccept(IIcon::close));
 	}
 	
 	/**
-	 * 一定要调用render，不然会线程死锁
+	 * 当前这次结果就绪后在{@link RecipeRenderer#EXECUTOR}上读取它,在读完之前{@link #clear()}不会释放图标
 	 *
-	 * @return 当渲染出错时返回null
+	 * @param rotate 为true时和{@link #pending()}一样,已经有结果时先换成新的
+	 */
+	private <T> CompletableFuture<T> read(boolean rotate, Function<IIcon, T> reader) {
+		synchronized (this) {
+			CompletableFuture<T> r = (rotate ? pending() : future).thenApplyAsync(reader, EXECUTOR);
+			readers.add(r);
+			return r;
+		}
+	}
+	
+	/**
+	 * 持有锁时调用,编码中的等编码完再释放
+	 */
+	private void releasePng() {
+		CompletableFuture<Attachment> p = pngFuture;
+		pngFuture = null;
+		if (p != null) p.thenAccept(Attachment::close);
+	}
+	
+	/**
+	 * 渲染线程完成渲染(包括回读)后完成,渲染出错时异常完成
+	 * <p>
+	 * 一定要调用render，不然永远不会完成
+	 */
+	public CompletableFuture<IIcon> getFuture() {
+		return future;
+	}
+	
+	/**
+	 * 图标就绪后立即在{@link RecipeRenderer#EXECUTOR}上用{@link PngEncoder}编码为png,图标本身要等{@link #clear()}才释放(缩放图标可能还在用)
+	 * <p>
+	 * 同一次渲染多次调用返回同一个future,编码结果同样在{@link #clear()}时释放
 	 */
-	public @Nullable IIcon getBlocking() {
-		while (last == null) {
-//			Thread.yield();
-			try {
-				Thread.sleep(100);
-				LOGGER.warn("等待客户端响应...");
-			} catch (InterruptedException ignored) {
+	public CompletableFuture<Attachment> getPngFuture() {
+		synchronized (this) {
+			CompletableFuture<Attachment> f = pngFuture;
+			if (f == null) {
+				pngFuture = f = read(false, icon -> {
+					long start = System.nanoTime();
+					Attachment png = PngEncoder.encode(icon.getImage());
+					SpanProfiler p = profiler;
+					if (p != null) p.record("icon/encode_png", System.nanoTime() - start, png.size());
+					return png;
+				});
 			}
+			return f;
 		}
-		return last.getOrThrow();
 	}
 	
-	public byte[] getBytesBlocking() throws IOException {
-		try (IIcon icon = getBlocking()) {
-			if (icon == null) return null;
-			return icon.getImage().asByteArray();
+	/**
+	 * 一定要调用render，不然会线程死锁
+	 *
+	 * @return 当渲染出错时抛出异常
+	 */
+	public IIcon getBlocking() {
+		return future.join();
+	}
+	
+	public Attachment getPngBlocking() {
+		long start = System.nanoTime();
+		try {
+			return getPngFuture().join();
+		} finally {
+			SpanProfiler p = profiler;
+			if (p != null) p.record("icon/wait", System.nanoTime() - start);
 		}
 	}
 	
-	public byte[] getBytesBlocking(ExportLogger logger) {
+	public @Nullable Attachment getPngBlocking(ExportLogger logger) {
 		try {
-			return getBytesBlocking();
-		} catch (IOException e) {
+			return getPngBlocking();
+		} catch (Exception e) {
 			logger.error("转换图片时出现异常, wrapId=" + wrapId, e);
 			return null;
 		}
@@ -0,0 +1,25 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import com.mojang.blaze3d.platform.NativeImage;
+
+/**
+ * Created in 2026/10/17 11:02
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 已经准备好像素的图标
+ * <p>
+ **/
+public class ImageIcon implements IIcon {
+	final NativeImage image;
+	
+	public ImageIcon(NativeImage image) {
+		this.image = image;
+	}
+	
+	@Override
+	public NativeImage getImage() {
+		return image;
+	}
+}
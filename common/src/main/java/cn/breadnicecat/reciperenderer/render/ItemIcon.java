@@ -2,7 +2,6 @@ package cn.breadnicecat.reciperenderer.render;
 
 import cn.breadnicecat.reciperenderer.utils.PoseOffset;
 import com.mojang.blaze3d.pipeline.RenderTarget;
-import com.mojang.blaze3d.pipeline.TextureTarget;
 import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.platform.Lighting;
 import com.mojang.blaze3d.platform.NativeImage;
@@ -19,9 +18,12 @@ import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.inventory.InventoryMenu;
 import net.minecraft.world.item.ItemDisplayContext;
 import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Matrix4f;
 import org.joml.Matrix4fStack;
 
+import java.util.function.Function;
+
 
 /**
  * Created in 2024/7/8 下午9:35
@@ -55,7 +57,7 @@ public class ItemIcon implements IIcon {
 		this.item = item;
 		this.holder = holder;
 		//开始
-		target = new TextureTarget(size, size, true, Minecraft.ON_OSX);
+		target = RenderTargetPool.acquire(size, size, true);
 		RenderSystem.backupProjectionMatrix();
 		Matrix4f p = new Matrix4f().setOrtho(0, 16, 16, 0, -1000, 1000);
 		RenderSystem.setProjectionMatrix(p, VertexSorting.ORTHOGRAPHIC_Z);
@@ -64,11 +66,11 @@ public class ItemIcon implements IIcon {
 		render();
 		//收尾
 		RenderSystem.restoreProjectionMatrix();
-		target.bindRead();
 		image = new NativeImage(target.width, target.height, false);
-		image.downloadTexture(0, false);
-		target.destroyBuffers();
-		image.flipY();
+		PboReadback.download(target, image);
+		RenderTargetPool.release(target);
+		//已经还回池里了,不能再用
+		target = null;
 		profiler.pop();
 	}
 	
@@ -83,6 +85,13 @@ public class ItemIcon implements IIcon {
 	}
 	
 	protected void render(ItemStack stack, BakedModel model, ItemRenderer renderer) {
+		draw(instance, stack, model, renderer, offset, size, 0, 0);
+	}
+	
+	/**
+	 * 在投影为16x16一格的坐标系中,把物品画在(originX,originY)开始的格子里
+	 */
+	static void draw(Minecraft instance, ItemStack stack, BakedModel model, ItemRenderer renderer, PoseOffset offset, int size, float originX, float originY) {
 		RenderSystem.setShaderTexture(0, InventoryMenu.BLOCK_ATLAS);
 		RenderSystem.enableBlend();
 		RenderSystem.blendFunc(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
@@ -92,7 +101,7 @@ public class ItemIcon implements IIcon {
 		modelViewStack.pushMatrix();
 		{
 			float mu = 16f / size;
-			modelViewStack.translate(8.0f + offset.x() * mu, 8.0f + offset.y() * mu, (model.isGui3d() ? 150 : 0) + offset.z() * mu);
+			modelViewStack.translate(originX + 8.0f + offset.x() * mu, originY + 8.0f + offset.y() * mu, (model.isGui3d() ? 150 : 0) + offset.z() * mu);
 			modelViewStack.scale(16.0F * offset.scale(), -16.0F * offset.scale(), 16.0F * offset.scale());
 			RenderSystem.applyModelViewMatrix();
 			MultiBufferSource.BufferSource immediate = instance.renderBuffers().bufferSource();
@@ -110,4 +119,18 @@ public class ItemIcon implements IIcon {
 		modelViewStack.popMatrix();
 	}
 	
+	/**
+	 * 可以被{@link AtlasBatchRenderer}识别并合批的工厂
+	 */
+	public record Factory(int size, ItemStack stack, @Nullable LivingEntity holder) implements Function<PoseOffset, IIcon> {
+		public Factory(int size, ItemStack stack) {
+			this(size, stack, null);
+		}
+		
+		@Override
+		public IIcon apply(PoseOffset pose) {
+			return new ItemIcon(pose, size, stack, holder);
+		}
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import cn.breadnicecat.reciperenderer.mixin.MixinNativeImage;
+import com.google.gson.JsonObject;
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.Util;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
+import static org.lwjgl.opengl.GL30.GL_MAP_READ_BIT;
+import static org.lwjgl.opengl.GL30.glMapBufferRange;
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Created in 2026/10/17 10:10
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 基于PBO环+fence的异步回读,只能在渲染线程调用
+ * <p>
+ * 在{@link #beginCapture()}和{@link #endCapture(Runnable)}之间调用的{@link #download(RenderTarget, NativeImage)}
+ * 只会把回读命令塞进PBO,等到之后某帧{@link #poll()}发现fence已触发时才真正拷贝到NativeImage,
+ * 这样第N帧的图标可以在第N+1帧绘制的同时回读;不在capture中时就退化成原来的同步下载
+ * <p>
+ * PBO只会按需扩容,所以闲置超过{@link #IDLE_MS}的会被删除,所有PBO的总容量也不超过{@link #MAX_MB}
+ * <p>
+ **/
+@Environment(EnvType.CLIENT)
+public class PboReadback {
+	/**
+	 * PBO环大小,环满时会阻塞等待最早的一个完成
+	 */
+	public static int RING_SIZE = Integer.getInteger("reciperenderer.pboRing", 64);
+	/**
+	 * 所有PBO加起来的容量上限,超出时先删闲置的,再等在途的完成后删;单次回读本身超过上限时仍然会分配
+	 */
+	public static long MAX_MB = Long.getLong("reciperenderer.pboMaxMB", 256);
+	/**
+	 * 闲置超过这么久的PBO会被删除
+	 */
+	public static long IDLE_MS = Long.getLong("reciperenderer.pboIdleMs", 10_000L);
+	
+	private static final ArrayDeque<Slot> free = new ArrayDeque<>();
+	private static final ArrayDeque<Slot> inflight = new ArrayDeque<>();
+	private static int allocated;
+	/**
+	 * 所有PBO的容量之和
+	 */
+	private static long allocatedBytes;
+	
+	private static boolean capturing;
+	private static @Nullable Slot lastCaptured;
+	
+	public static void beginCapture() {
+		RenderSystem.assertOnRenderThread();
+		capturing = true;
+		lastCaptured = null;
+	}
+	
+	/**
+	 * @param onComplete 本次capture中所有回读完成后调用,没有回读时立即调用
+	 */
+	public static void endCapture(Runnable onComplete) {
+		capturing = false;
+		if (lastCaptured == null) {
+			onComplete.run();
+		} else {
+			//fifo完成,挂在最后一个上就等于全部完成
+			lastCaptured.onComplete = lastCaptured.onComplete == null ? onComplete : chain(lastCaptured.onComplete, onComplete);
+			lastCaptured = null;
+		}
+	}
+	
+	/**
+	 * 读取target的颜色附件并上下翻转到image中
+	 */
+	public static void download(RenderTarget target, NativeImage image) {
+		target.bindRead();
+		if (!capturing) {
+			image.downloadTexture(0, false);
+			image.flipY();
+			return;
+		}
+		long bytes = (long) image.getWidth() * image.getHeight() * image.format().components();
+		Slot slot = acquire(bytes);
+		glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.pbo);
+		GlStateManager._pixelStore(GL_PACK_ALIGNMENT, image.format().components());
+		glGetTexImage(GL_TEXTURE_2D, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0L);
+		glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+		slot.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		slot.image = image;
+		slot.bytes = bytes;
+		inflight.add(slot);
+		lastCaptured = slot;
+	}
+	
+	/**
+	 * 每帧调用,完成所有已经就绪的回读
+	 */
+	public static void poll() {
+		while (!inflight.isEmpty()) {
+			Slot slot = inflight.peek();
+			int state = glClientWaitSync(slot.fence, 0, 0);
+			if (state != GL_ALREADY_SIGNALED && state != GL_CONDITION_SATISFIED) break;
+			complete(inflight.poll());
+		}
+	}
+	
+	/**
+	 * 阻塞完成所有回读
+	 */
+	public static void flush() {
+		while (!inflight.isEmpty()) {
+			awaitAndComplete(inflight.poll());
+		}
+	}
+	
+	public static int inflight() {
+		return inflight.size();
+	}
+	
+	/**
+	 * 每帧调用,删除闲置过久的PBO
+	 */
+	public static void evictIdle() {
+		if (free.isEmpty()) return;
+		long now = Util.getMillis();
+		Iterator<Slot> it = free.iterator();
+		while (it.hasNext()) {
+			Slot slot = it.next();
+			if (now - slot.since > IDLE_MS) {
+				it.remove();
+				delete(slot);
+			}
+		}
+	}
+	
+	/**
+	 * 完成所有回读并删除全部PBO,离开世界时调用
+	 */
+	public static void clear() {
+		RenderSystem.assertOnRenderThread();
+		flush();
+		while (!free.isEmpty()) delete(free.poll());
+	}
+	
+	public static String describe() {
+		return "PBO: " + allocated + "/" + RING_SIZE + "个, 在途" + inflight.size() + ", 共" + allocatedBytes / 1024 / 1024 + "/" + MAX_MB + "MB";
+	}
+	
+	public static JsonObject toJson() {
+		JsonObject object = new JsonObject();
+		object.addProperty("allocated", allocated);
+		object.addProperty("inflight", inflight.size());
+		object.addProperty("bytes", allocatedBytes);
+		return object;
+	}
+	
+	private static Slot acquire(long bytes) {
+		Slot slot = pollFree(bytes);
+		if (slot == null) {
+			if (allocated < RING_SIZE) {
+				slot = new Slot(glGenBuffers());
+				allocated++;
+			} else {
+				//环满了,只能等最早的那个
+				awaitAndComplete(inflight.poll());
+				slot = free.poll();
+			}
+		}
+		if (slot.capacity < bytes) {
+			//扩容前先腾出总容量: 先删闲置的,没有闲置的就等最早在途的完成再删
+			long limit = MAX_MB * 1024 * 1024;
+			while (allocatedBytes - slot.capacity + bytes > limit && (!free.isEmpty() || !inflight.isEmpty())) {
+				if (free.isEmpty()) awaitAndComplete(inflight.poll());
+				delete(free.poll());
+			}
+			glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.pbo);
+			glBufferData(GL_PIXEL_PACK_BUFFER, bytes, GL_STREAM_READ);
+			glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+			allocatedBytes += bytes - slot.capacity;
+			slot.capacity = bytes;
+		}
+		return slot;
+	}
+	
+	/**
+	 * 优先取容量够的,避免无谓的扩容
+	 */
+	private static @Nullable Slot pollFree(long bytes) {
+		Iterator<Slot> it = free.iterator();
+		while (it.hasNext()) {
+			Slot slot = it.next();
+			if (slot.capacity >= bytes) {
+				it.remove();
+				return slot;
+			}
+		}
+		return free.poll();
+	}
+	
+	private static void delete(Slot slot) {
+		glDeleteBuffers(slot.pbo);
+		allocated--;
+		allocatedBytes -= slot.capacity;
+	}
+	
+	private static void awaitAndComplete(Slot slot) {
+		int state;
+		do {
+			state = glClientWaitSync(slot.fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000L);
+		} while (state == GL_TIMEOUT_EXPIRED);
+		if (state == GL_WAIT_FAILED) LOGGER.warn("PBO fence等待失败,pbo={}", slot.pbo);
+		complete(slot);
+	}
+	
+	private static void complete(Slot slot) {
+		glDeleteSync(slot.fence);
+		slot.fence = 0;
+		NativeImage image = slot.image;
+		Runnable onComplete = slot.onComplete;
+		slot.image = null;
+		slot.onComplete = null;
+		try {
+			glBindBuffer(GL_PIXEL_PACK_BUFFER, slot.pbo);
+			ByteBuffer mapped = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0, slot.bytes, GL_MAP_READ_BIT);
+			if (mapped != null) {
+				MemoryUtil.memCopy(MemoryUtil.memAddress(mapped), MixinNativeImage.pixelsOf(image), slot.bytes);
+				glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+			} else {
+				LOGGER.warn("无法映射PBO,pbo={}", slot.pbo);
+			}
+			glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+			image.flipY();
+		} finally {
+			slot.since = Util.getMillis();
+			free.add(slot);
+			if (onComplete != null) onComplete.run();
+		}
+	}
+	
+	private static Runnable chain(Runnable a, Runnable b) {
+		return () -> {
+			a.run();
+			b.run();
+		};
+	}
+	
+	private static class Slot {
+		final int pbo;
+		long capacity;
+		long bytes;
+		long fence;
+		/**
+		 * 放回free的时间
+		 */
+		long since;
+		NativeImage image;
+		@Nullable Runnable onComplete;
+		
+		Slot(int pbo) {
+			this.pbo = pbo;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import cn.breadnicecat.reciperenderer.mixin.MixinNativeImage;
+import cn.breadnicecat.reciperenderer.utils.Attachment;
+import com.mojang.blaze3d.platform.NativeImage;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Created in 2026/10/17 23:26
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 纯CPU的png编码,可以在任意线程调用,替代{@link NativeImage#asByteArray()}
+ * <p>
+ * 直接读NativeImage的像素指针,逐行选择过滤器(与stb/libpng相同的最小绝对值和启发式)后写进线程自己的堆外缓冲,
+ * 再用线程自己的Deflater压缩进池化的堆外缓冲,结果由{@link Attachment}持有,close时还回池里
+ * <p>
+ * 整个过程不产生与图片大小相关的byte[]
+ * <p>
+ **/
+public class PngEncoder {
+	public static int LEVEL = Integer.getInteger("reciperenderer.pngLevel", 6);
+	/**
+	 * 池里最多保留的空闲输出缓冲数
+	 */
+	public static int POOL_SIZE = Integer.getInteger("reciperenderer.pngPool", 64);
+	
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * 签名 + IHDR + IDAT的长度/类型/crc + IEND
+	 */
+	private static final int OVERHEAD = 8 + 25 + 12 + 12;
+	private static final int NONE = 0, SUB = 1, UP = 2, AVERAGE = 3, PAETH = 4;
+	
+	private static final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger pooled = new AtomicInteger();
+	private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+	
+	/**
+	 * 调用者要保证编码期间image不会被close({@link IconWrapper#clear()}会等编码结束)
+	 */
+	public static Attachment encode(NativeImage image) {
+		int components = image.format().components();
+		int size = image.getWidth() * image.getHeight() * components;
+		long pointer = MixinNativeImage.pixelsOf(image);
+		//close后指针归零,至少不要去读地址0
+		if (pointer == 0) throw new IllegalStateException("图片已经被释放");
+		ByteBuffer pixels = MemoryUtil.memByteBuffer(pointer, size);
+		return encode(pixels, image.getWidth(), image.getHeight(), components);
+	}
+	
+	/**
+	 * @param pixels     从position开始按行存放,每像素components字节(NativeImage的RGBA即png的RGBA)
+	 * @param components 1灰度 2灰度+alpha 3RGB 4RGBA
+	 */
+	public static Attachment encode(ByteBuffer pixels, int width, int height, int components) {
+		int colorType = switch (components) {
+			case 1 -> 0;
+			case 2 -> 4;
+			case 3 -> 2;
+			case 4 -> 6;
+			default -> throw new IllegalArgumentException("不支持的通道数:" + components);
+		};
+		Scratch s = scratch.get();
+		int stride = width * components;
+		ByteBuffer raw = s.raw((stride + 1) * height);
+		filter(pixels.slice(), raw, s, stride, height, components);
+		raw.flip();
+		
+		ByteBuffer out = acquire(OVERHEAD + raw.remaining() + (raw.remaining() >>> 10) + 64);
+		out.put(SIGNATURE);
+		int ihdr = out.position();
+		out.putInt(13).put(IHDR).putInt(width).putInt(height)
+				.put((byte) 8).put((byte) colorType).put((byte) 0).put((byte) 0).put((byte) 0);
+		endChunk(out, ihdr);
+		
+		int idat = out.position();
+		out.putInt(0).put(IDAT);
+		Deflater deflater = s.deflater;
+		deflater.reset();
+		deflater.setLevel(LEVEL);
+		deflater.setInput(raw);
+		deflater.finish();
+		while (!deflater.finished()) {
+			if (out.remaining() < 12 + 16) out = grow(out);
+			deflater.deflate(out);
+		}
+		out.putInt(idat, out.position() - idat - 8);
+		endChunk(out, idat);
+		
+		int iend = out.position();
+		out.putInt(0).put(IEND);
+		endChunk(out, iend);
+		out.flip();
+		ByteBuffer result = out;
+		return new Attachment(result, () -> release(result));
+	}
+	
+	/**
+	 * 空闲的缓冲数
+	 */
+	public static int pooled() {
+		return pooled.get();
+	}
+	
+	private static void filter(ByteBuffer pixels, ByteBuffer raw, Scratch s, int stride, int height, int bpp) {
+		s.ensureRow(stride);
+		byte[] prev = s.prev, cur = s.cur;
+		Arrays.fill(prev, 0, stride, (byte) 0);
+		for (int y = 0; y < height; y++) {
+			pixels.get(y * stride, cur, 0, stride);
+			int best = NONE;
+			long bestSum = Long.MAX_VALUE;
+			for (int type = NONE; type <= PAETH; type++) {
+				byte[] t = s.trial[type];
+				long sum = 0;
+				for (int i = 0; i < stride; i++) {
+					int x = cur[i] & 0xFF;
+					int a = i >= bpp ? cur[i - bpp] & 0xFF : 0;
+					int b = prev[i] & 0xFF;
+					int c = i >= bpp ? prev[i - bpp] & 0xFF : 0;
+					int v = switch (type) {
+						case SUB -> x - a;
+						case UP -> x - b;
+						case AVERAGE -> x - ((a + b) >>> 1);
+						case PAETH -> x - paeth(a, b, c);
+						default -> x;
+					};
+					t[i] = (byte) v;
+					sum += Math.abs((byte) v);
+				}
+				if (sum < bestSum) {
+					bestSum = sum;
+					best = type;
+				}
+			}
+			raw.put((byte) best).put(s.trial[best], 0, stride);
+			byte[] swap = prev;
+			prev = cur;
+			cur = swap;
+		}
+		s.prev = prev;
+		s.cur = cur;
+	}
+	
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc) return a;
+		return pb <= pc ? b : c;
+	}
+	
+	/**
+	 * 从start(长度字段)开始的块已经写完数据,补上类型+数据的crc
+	 */
+	private static void endChunk(ByteBuffer out, int start) {
+		CRC32 crc = new CRC32();
+		crc.update(out.duplicate().position(start + 4).limit(out.position()));
+		out.putInt((int) crc.getValue());
+	}
+	
+	private static ByteBuffer acquire(int min) {
+		ByteBuffer b;
+		while ((b = pool.poll()) != null) {
+			pooled.decrementAndGet();
+			//太小的直接丢掉,交给GC回收
+			if (b.capacity() >= min) return b.clear();
+		}
+		return ByteBuffer.allocateDirect(Math.max(min, 1 << 16));
+	}
+	
+	private static ByteBuffer grow(ByteBuffer out) {
+		ByteBuffer bigger = acquire(out.capacity() * 2);
+		bigger.put(out.flip());
+		release(out);
+		return bigger;
+	}
+	
+	private static void release(ByteBuffer b) {
+		if (pooled.incrementAndGet() <= POOL_SIZE) {
+			pool.offer(b.clear());
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+	
+	private static class Scratch {
+		final Deflater deflater = new Deflater(LEVEL);
+		final byte[][] trial = new byte[5][];
+		byte[] prev = new byte[0], cur = new byte[0];
+		ByteBuffer raw = ByteBuffer.allocateDirect(0);
+		
+		void ensureRow(int stride) {
+			if (cur.length >= stride) return;
+			prev = new byte[stride];
+			cur = new byte[stride];
+			for (int i = 0; i < trial.length; i++) trial[i] = new byte[stride];
+		}
+		
+		ByteBuffer raw(int size) {
+			if (raw.capacity() < size) raw = ByteBuffer.allocateDirect(size);
+			return raw.clear().limit(size);
+		}
+	}
+}
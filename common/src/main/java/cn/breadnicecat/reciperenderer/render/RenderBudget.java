@@ -0,0 +1,159 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import com.google.gson.JsonObject;
+import com.mojang.blaze3d.platform.NativeImage;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created in 2026/10/17 22:58
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 已提交渲染但还没写入(clear)的图标的全局上限,批量导出时所有Exporter共用
+ * <p>
+ * 图标进入写入窗口时{@link #admit}登记,渲染完成时记下NativeImage占用的堆外内存,条目写入并关闭后{@link Ticket#close()}归还;
+ * 超过{@link #MAX_ICONS}或{@link #MAX_NATIVE_BYTES}时{@link #awaitRoom}阻塞,直到别的条目写完
+ * <p>
+ **/
+public class RenderBudget {
+	public static int MAX_ICONS = Integer.getInteger("reciperenderer.maxInflightIcons", 256);
+	public static long MAX_NATIVE_BYTES = Long.getLong("reciperenderer.maxInflightMB", 64L) * 1024 * 1024;
+	
+	private static final Object lock = new Object();
+	private static int icons;
+	private static long nativeBytes;
+	private static int peakIcons;
+	private static long peakNativeBytes;
+	private static long waits;
+	private static long waitNanos;
+	
+	/**
+	 * 登记即将提交渲染的图标(一般是一个条目的所有图标),返回的Ticket在条目关闭后一定要close
+	 */
+	public static Ticket admit(Collection<IconWrapper> wrappers) {
+		Ticket ticket = new Ticket(wrappers.size());
+		synchronized (lock) {
+			icons += ticket.icons;
+			peakIcons = Math.max(peakIcons, icons);
+		}
+		for (IconWrapper w : wrappers) {
+			w.getFuture().thenAccept(icon -> ticket.hold(bytesOf(icon.getImage())));
+		}
+		return ticket;
+	}
+	
+	public static boolean hasRoom() {
+		synchronized (lock) {
+			return icons < MAX_ICONS && nativeBytes < MAX_NATIVE_BYTES;
+		}
+	}
+	
+	/**
+	 * 阻塞直到有空位,调用者自己没有占用任何图标时才应该等待(否则可能等不到)
+	 *
+	 * @return 是否等到了空位(超时也会返回,防止泄漏的登记卡死导出)
+	 */
+	public static boolean awaitRoom(long timeoutMs) throws InterruptedException {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		synchronized (lock) {
+			try {
+				while (icons >= MAX_ICONS || nativeBytes >= MAX_NATIVE_BYTES) {
+					long left = deadline - System.nanoTime();
+					if (left <= 0) return false;
+					TimeUnit.NANOSECONDS.timedWait(lock, left);
+				}
+				return true;
+			} finally {
+				waits++;
+				waitNanos += System.nanoTime() - start;
+			}
+		}
+	}
+	
+	public static int getIcons() {
+		synchronized (lock) {
+			return icons;
+		}
+	}
+	
+	public static long getNativeBytes() {
+		synchronized (lock) {
+			return nativeBytes;
+		}
+	}
+	
+	public static String describe() {
+		synchronized (lock) {
+			return "渲染中/待写入图标: " + icons + "/" + MAX_ICONS
+					+ ", 堆外内存: " + nativeBytes / 1024 / 1024 + "/" + MAX_NATIVE_BYTES / 1024 / 1024 + "MB"
+					+ ", 峰值: " + peakIcons + "个/" + peakNativeBytes / 1024 / 1024 + "MB"
+					+ ", 等待: " + waits + "次/" + TimeUnit.NANOSECONDS.toMillis(waitNanos) + "ms";
+		}
+	}
+	
+	/**
+	 * 写入metrics.json,峰值和等待是从上一次{@link #resetStats()}开始累计的
+	 */
+	public static JsonObject toJson() {
+		synchronized (lock) {
+			JsonObject object = new JsonObject();
+			object.addProperty("max_icons", MAX_ICONS);
+			object.addProperty("max_native_bytes", MAX_NATIVE_BYTES);
+			object.addProperty("peak_icons", peakIcons);
+			object.addProperty("peak_native_bytes", peakNativeBytes);
+			object.addProperty("waits", waits);
+			object.addProperty("wait_ms", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+			return object;
+		}
+	}
+	
+	public static void resetStats() {
+		synchronized (lock) {
+			peakIcons = icons;
+			peakNativeBytes = nativeBytes;
+			waits = 0;
+			waitNanos = 0;
+		}
+	}
+	
+	private static long bytesOf(NativeImage image) {
+		return (long) image.getWidth() * image.getHeight() * image.format().components();
+	}
+	
+	public static class Ticket implements AutoCloseable {
+		private final int icons;
+		private long bytes;
+		private boolean closed;
+		
+		private Ticket(int icons) {
+			this.icons = icons;
+		}
+		
+		/**
+		 * 关闭之后才渲染完成的图标会被调用者直接释放,不再计入
+		 */
+		private void hold(long b) {
+			synchronized (lock) {
+				if (closed) return;
+				bytes += b;
+				nativeBytes += b;
+				peakNativeBytes = Math.max(peakNativeBytes, nativeBytes);
+			}
+		}
+		
+		@Override
+		public void close() {
+			synchronized (lock) {
+				if (closed) return;
+				closed = true;
+				RenderBudget.icons -= icons;
+				nativeBytes -= bytes;
+				lock.notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import cn.breadnicecat.reciperenderer.utils.ContentIndex;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.renderer.block.model.ItemTransform;
+import net.minecraft.client.renderer.entity.EntityRenderer;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.ItemDisplayContext;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Created in 2026/10/17 16:02
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 描述"渲染出来长什么样"的指纹片段,用于增量导出判断图标是否需要重新渲染
+ * <p>
+ * 只覆盖模型/贴图资源本身,由代码动态决定的渲染效果(BEWLR等)改变时检测不到,所以自定义渲染器的物品不参与增量导出
+ * <p>
+ **/
+public class RenderIdentity {
+	private static final Minecraft instance = Minecraft.getInstance();
+	private static final Direction[] DIRECTIONS = {null, Direction.DOWN, Direction.UP, Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST};
+	
+	/**
+	 * 只能在渲染线程调用,取的是导出时实际绘制的模型(与{@link ItemIcon}一样没有持有者,覆写已经解析好)
+	 * <p>
+	 * 所有方向的全部面(顶点、uv、染色索引)和GUI变换都算进去,父模型、覆写、模型文件名都不影响结果;
+	 * 贴图内容读文件比较慢,由{@link ItemModel#identity(Map)}在别的线程上算
+	 *
+	 * @return 自定义渲染器(BEWLR)的物品为null
+	 */
+	public static @Nullable ItemModel item(ItemStack stack) {
+		RenderSystem.assertOnRenderThread();
+		BakedModel model = instance.getItemRenderer().getModel(stack, null, null, 0);
+		if (model.isCustomRenderer()) return null;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		SortedSet<ResourceLocation> sprites = new TreeSet<>();
+		RandomSource random = RandomSource.create();
+		try {
+			out.writeUTF(model.getClass().getName());
+			out.writeBoolean(model.isGui3d());
+			out.writeBoolean(model.usesBlockLight());
+			ItemTransform gui = model.getTransforms().getTransform(ItemDisplayContext.GUI);
+			out.writeUTF(gui.rotation + "|" + gui.translation + "|" + gui.scale);
+			sprites.add(model.getParticleIcon().contents().name());
+			for (Direction direction : DIRECTIONS) {
+				//与ItemRenderer一样每个方向都用42作种子
+				random.setSeed(42L);
+				List<BakedQuad> quads = model.getQuads(null, direction, random);
+				out.writeInt(quads.size());
+				for (BakedQuad quad : quads) {
+					ResourceLocation sprite = quad.getSprite().contents().name();
+					sprites.add(sprite);
+					out.writeUTF(sprite.toString());
+					out.writeInt(quad.getTintIndex());
+					out.writeInt(quad.getDirection().ordinal());
+					out.writeBoolean(quad.isShade());
+					for (int v : quad.getVertices()) out.writeInt(v);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new ItemModel(ContentIndex.hash(bytes.toByteArray()), sprites);
+	}
+	
+	/**
+	 * @param digest  模型几何和变换的hash
+	 * @param sprites 用到的所有贴图(含粒子贴图)
+	 */
+	public record ItemModel(String digest, SortedSet<ResourceLocation> sprites) {
+		/**
+		 * 任意线程调用,会读取贴图文件
+		 *
+		 * @param cache 贴图 : 内容hash,同一次收集里的物品共用
+		 */
+		public String identity(Map<ResourceLocation, String> cache) {
+			StringJoiner joiner = new StringJoiner("|");
+			joiner.add(digest);
+			for (ResourceLocation sprite : sprites) {
+				joiner.add(sprite.toString())
+						.add(cache.computeIfAbsent(sprite, s -> resourceHash(s.withPath(p -> "textures/" + p + ".png"))));
+			}
+			return joiner.toString();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static String entity(Entity entity) {
+		EntityRenderer<Entity> renderer = (EntityRenderer<Entity>) instance.getEntityRenderDispatcher().getRenderer(entity);
+		ResourceLocation tex = renderer.getTextureLocation(entity);
+		return renderer.getClass().getName() + "|" + tex + "|" + resourceHash(tex);
+	}
+	
+	/**
+	 * @return 资源不存在时为"-"
+	 */
+	public static String resourceHash(ResourceLocation location) {
+		return instance.getResourceManager().getResource(location).map(r -> {
+			try (InputStream in = r.open()) {
+				return r.sourcePackId() + ":" + ContentIndex.hash(in.readAllBytes());
+			} catch (IOException e) {
+				return "-";
+			}
+		}).orElse("-");
+	}
+}
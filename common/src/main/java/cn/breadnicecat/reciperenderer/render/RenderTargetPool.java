@@ -0,0 +1,92 @@
+package cn.breadnicecat.reciperenderer.render;
+
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import com.mojang.blaze3d.systems.RenderSystem;
+import net.fabricmc.api.EnvType;
+import net.fabricmc.api.Environment;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Created in 2026/10/17 11:41
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 按尺寸和深度缓冲复用RenderTarget,避免每个图标都创建/销毁一次FBO和纹理,只能在渲染线程使用
+ * <p>
+ **/
+@Environment(EnvType.CLIENT)
+public class RenderTargetPool {
+	/**
+	 * 闲置超过这么久的RenderTarget会被销毁
+	 */
+	public static long IDLE_MS = Long.getLong("reciperenderer.targetIdleMs", 10_000L);
+	/**
+	 * 每种规格最多保留的闲置数量
+	 */
+	public static int MAX_IDLE_PER_KEY = Integer.getInteger("reciperenderer.targetIdlePerKey", 4);
+	
+	private static final Map<Key, ArrayDeque<Idle>> idle = new HashMap<>();
+	
+	/**
+	 * 取出的RenderTarget已经被清空
+	 */
+	public static RenderTarget acquire(int width, int height, boolean useDepth) {
+		RenderSystem.assertOnRenderThread();
+		ArrayDeque<Idle> queue = idle.get(new Key(width, height, useDepth));
+		Idle cached = queue == null ? null : queue.pollLast();
+		if (cached == null) {
+			//新建的时候就已经clear过了
+			return new TextureTarget(width, height, useDepth, Minecraft.ON_OSX);
+		}
+		RenderTarget target = cached.target;
+		target.setClearColor(1, 1, 1, 0);
+		target.clear(Minecraft.ON_OSX);
+		return target;
+	}
+	
+	public static void release(RenderTarget target) {
+		RenderSystem.assertOnRenderThread();
+		ArrayDeque<Idle> queue = idle.computeIfAbsent(new Key(target.width, target.height, target.useDepth), k -> new ArrayDeque<>());
+		if (queue.size() >= MAX_IDLE_PER_KEY) {
+			target.destroyBuffers();
+		} else {
+			queue.addLast(new Idle(target, Util.getMillis()));
+		}
+	}
+	
+	/**
+	 * 每帧调用,销毁闲置过久的RenderTarget
+	 */
+	public static void evictIdle() {
+		if (idle.isEmpty()) return;
+		long now = Util.getMillis();
+		Iterator<ArrayDeque<Idle>> it = idle.values().iterator();
+		while (it.hasNext()) {
+			ArrayDeque<Idle> queue = it.next();
+			//队首是最早放回来的
+			while (!queue.isEmpty() && now - queue.peekFirst().since > IDLE_MS) {
+				queue.pollFirst().target.destroyBuffers();
+			}
+			if (queue.isEmpty()) it.remove();
+		}
+	}
+	
+	public static void clear() {
+		idle.values().forEach(q -> q.forEach(i -> i.target.destroyBuffers()));
+		idle.clear();
+	}
+	
+	private record Key(int width, int height, boolean useDepth) {
+	}
+	
+	private record Idle(RenderTarget target, long since) {
+	}
+}
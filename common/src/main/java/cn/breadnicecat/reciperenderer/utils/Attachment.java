@@ -0,0 +1,87 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Created in 2026/10/17 23:20
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 待写入压缩包的附件内容,可以是堆外的(来自{@link cn.breadnicecat.reciperenderer.render.PngEncoder}的缓冲)
+ * <p>
+ * zip需要的crc和去重用的SHA-256在构造时(编码所在的worker线程上)算好,写入线程只负责拷贝
+ * <p>
+ **/
+public final class Attachment implements Closeable {
+	private final ByteBuffer data;
+	private final long crc;
+	private final String hash;
+	private final @Nullable Runnable release;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	
+	/**
+	 * @param data    position到limit为内容,之后不能再修改
+	 * @param release close时调用一次,一般用来把缓冲还回池里
+	 */
+	public Attachment(ByteBuffer data, @Nullable Runnable release) {
+		this.data = data.slice();
+		this.release = release;
+		CRC32 c = new CRC32();
+		c.update(this.data.duplicate());
+		this.crc = c.getValue();
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(this.data.duplicate());
+			this.hash = HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	public static @Nullable Attachment of(byte @Nullable [] data) {
+		return data == null ? null : new Attachment(ByteBuffer.wrap(data), null);
+	}
+	
+	/**
+	 * @return 只读视图,每次调用都是独立的position
+	 */
+	public ByteBuffer data() {
+		if (closed.get()) throw new IllegalStateException("附件已释放");
+		return data.asReadOnlyBuffer();
+	}
+	
+	public int size() {
+		return data.remaining();
+	}
+	
+	public long crc() {
+		return crc;
+	}
+	
+	/**
+	 * 与{@link ContentIndex#hash(byte[])}相同
+	 */
+	public String hash() {
+		return hash;
+	}
+	
+	public byte[] toByteArray() {
+		byte[] b = new byte[size()];
+		data().get(b);
+		return b;
+	}
+	
+	@Override
+	public void close() {
+		if (closed.compareAndSet(false, true) && release != null) release.run();
+	}
+}
@@ -0,0 +1,217 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Created in 2026/10/17 22:20
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 与xxx.jsons内容相同的二进制表(.rrb),可以mmap后按id直接定位到单条记录,不用解析整个文件
+ * <p>
+ * 所有整数都是小端序,偏移都是相对文件开头的:
+ * <pre>
+ * header  : "RRBT" u16 FORMAT u16 0
+ * records : 每条 u32 长度 + 值(一定是OBJECT)
+ * strings : u32 n, u32 offsets[n+1](相对于数据开头), UTF-8数据
+ * index   : u32 n, n个 (u32 id字符串下标, u64 记录偏移),按id的UTF-8字节升序,可以二分查找
+ * trailer : u64 strings偏移, u64 index偏移, u32 记录数, u32 条目版本号, u32 FORMAT, "RRBT"   (固定32字节)
+ *
+ * 值 : u8 类型 + 内容
+ *   NULL/FALSE/TRUE : 无
+ *   LONG   : i64
+ *   DOUBLE : f64
+ *   STRING : u32 字符串下标
+ *   ARRAY  : u32 n, n个值
+ *   OBJECT : u32 n, n个 (u32 键的字符串下标, 值)
+ * </pre>
+ * 所有键和字符串值共用一张字符串表,重复的只存一次
+ * <p>
+ **/
+public class BinaryTableWriter implements Closeable {
+	public static final int FORMAT = 1;
+	public static final int TRAILER_SIZE = 32;
+	private static final byte[] MAGIC = {'R', 'R', 'B', 'T'};
+	public static final byte NULL = 0, FALSE = 1, TRUE = 2, LONG = 3, DOUBLE = 4, STRING = 5, ARRAY = 6, OBJECT = 7;
+	
+	private final OutputStream out;
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	private final List<byte[]> strings = new ArrayList<>();
+	/**
+	 * id字符串下标 : 记录偏移
+	 */
+	private final Map<Integer, Long> index = new HashMap<>();
+	private final Buffer buf = new Buffer();
+	private long offset;
+	private int count;
+	
+	public BinaryTableWriter(OutputStream out) throws IOException {
+		this.out = out;
+		buf.bytes(MAGIC).u16(FORMAT).u16(0);
+		flush();
+	}
+	
+	/**
+	 * @param id 为null或重复时不进入索引
+	 * @return 记录的偏移
+	 */
+	public long add(@Nullable String id, JsonObject record) throws IOException {
+		long start = offset;
+		buf.u32(0);
+		value(record);
+		buf.setU32(0, buf.size - 4);
+		flush();
+		count++;
+		if (id != null) index.putIfAbsent(string(id), start);
+		return start;
+	}
+	
+	/**
+	 * 写入字符串表,索引和结尾,不会关闭输出流
+	 *
+	 * @param version 条目的版本号(#format_version),没有时为0
+	 */
+	public void finish(int version) throws IOException {
+		long stringsOffset = offset;
+		buf.u32(strings.size());
+		int pos = 0;
+		buf.u32(pos);
+		for (byte[] s : strings) buf.u32(pos += s.length);
+		flush();
+		for (byte[] s : strings) {
+			out.write(s);
+			offset += s.length;
+		}
+		
+		long indexOffset = offset;
+		List<Map.Entry<Integer, Long>> sorted = new ArrayList<>(index.entrySet());
+		sorted.sort((a, b) -> Arrays.compareUnsigned(strings.get(a.getKey()), strings.get(b.getKey())));
+		buf.u32(sorted.size());
+		for (Map.Entry<Integer, Long> e : sorted) buf.u32(e.getKey()).u64(e.getValue());
+		buf.u64(stringsOffset).u64(indexOffset).u32(count).u32(version).u32(FORMAT).bytes(MAGIC);
+		flush();
+	}
+	
+	public int getCount() {
+		return count;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+	
+	private void value(JsonElement e) {
+		if (e == null || e.isJsonNull()) {
+			buf.u8(NULL);
+		} else if (e instanceof JsonObject o) {
+			buf.u8(OBJECT).u32(o.size());
+			for (Map.Entry<String, JsonElement> entry : o.entrySet()) {
+				buf.u32(string(entry.getKey()));
+				value(entry.getValue());
+			}
+		} else if (e instanceof JsonArray a) {
+			buf.u8(ARRAY).u32(a.size());
+			for (JsonElement i : a) value(i);
+		} else {
+			JsonPrimitive p = (JsonPrimitive) e;
+			if (p.isBoolean()) {
+				buf.u8(p.getAsBoolean() ? TRUE : FALSE);
+			} else if (p.isNumber()) {
+				Number n = p.getAsNumber();
+				Long l = asLong(n);
+				if (l != null) buf.u8(LONG).u64(l);
+				//float直接转double会多出尾数(0.6f -> 0.6000000238),按文本转换才和json里的一致
+				else buf.u8(DOUBLE).u64(Double.doubleToRawLongBits(Double.parseDouble(n.toString())));
+			} else {
+				buf.u8(STRING).u32(string(p.getAsString()));
+			}
+		}
+	}
+	
+	/**
+	 * 新写入的条目是Integer/Float等,复用的条目是从json解析出来的LazilyParsedNumber,两者要得到同样的类型
+	 */
+	private static @Nullable Long asLong(Number n) {
+		if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte) return n.longValue();
+		if (n instanceof Float || n instanceof Double) return null;
+		String s = n.toString();
+		if (s.indexOf('.') >= 0 || s.indexOf('e') >= 0 || s.indexOf('E') >= 0) return null;
+		try {
+			return Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	private int string(String s) {
+		return stringIds.computeIfAbsent(s, k -> {
+			strings.add(k.getBytes(StandardCharsets.UTF_8));
+			return strings.size() - 1;
+		});
+	}
+	
+	private void flush() throws IOException {
+		out.write(buf.data, 0, buf.size);
+		offset += buf.size;
+		buf.size = 0;
+	}
+	
+	/**
+	 * 小端序的可增长缓冲
+	 */
+	private static class Buffer {
+		byte[] data = new byte[4096];
+		int size;
+		
+		private void ensure(int n) {
+			if (size + n > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + n));
+		}
+		
+		Buffer u8(int v) {
+			ensure(1);
+			data[size++] = (byte) v;
+			return this;
+		}
+		
+		Buffer u16(int v) {
+			return u8(v).u8(v >>> 8);
+		}
+		
+		Buffer u32(int v) {
+			ensure(4);
+			setU32(size, v);
+			size += 4;
+			return this;
+		}
+		
+		Buffer u64(long v) {
+			return u32((int) v).u32((int) (v >>> 32));
+		}
+		
+		Buffer bytes(byte[] b) {
+			ensure(b.length);
+			System.arraycopy(b, 0, data, size, b.length);
+			size += b.length;
+			return this;
+		}
+		
+		void setU32(int at, int v) {
+			data[at] = (byte) v;
+			data[at + 1] = (byte) (v >>> 8);
+			data[at + 2] = (byte) (v >>> 16);
+			data[at + 3] = (byte) (v >>> 24);
+		}
+	}
+}
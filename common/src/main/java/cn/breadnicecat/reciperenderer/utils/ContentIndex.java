@@ -0,0 +1,74 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created in 2026/10/17 15:05
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 按内容(SHA-256)索引已写入的附件,相同内容只写一次
+ * <p>
+ * 索引是有上限的LRU,超出后最久没命中的会被忘掉(只会导致少去重,不会出错)
+ * <p>
+ **/
+public class ContentIndex {
+	private final Map<String, String> index;
+	private int hits;
+	private long savedBytes;
+	
+	public ContentIndex(int maxEntries) {
+		this.index = new LinkedHashMap<>(256, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+	
+	/**
+	 * @return 已经有相同内容时返回它的路径,否则记录path并返回null
+	 */
+	public @Nullable String putIfAbsent(byte[] data, String path) {
+		return putIfAbsent(hash(data), data.length, path);
+	}
+	
+	/**
+	 * 使用附件编码时已经算好的hash
+	 */
+	public @Nullable String putIfAbsent(Attachment data, String path) {
+		return putIfAbsent(data.hash(), data.size(), path);
+	}
+	
+	private synchronized @Nullable String putIfAbsent(String hash, int size, String path) {
+		String existing = index.putIfAbsent(hash, path);
+		if (existing != null) {
+			hits++;
+			savedBytes += size;
+		}
+		return existing;
+	}
+	
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	public synchronized long getSavedBytes() {
+		return savedBytes;
+	}
+	
+	public static String hash(byte[] data) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import cn.breadnicecat.reciperenderer.Exporter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+
+/**
+ * Created in 2026/10/17 19:06
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 反编译结果的磁盘缓存,位于rr_export/.cache/decompiled/,以 类字节码+反编译选项 的SHA-256为键,跨mod跨导出共用
+ * <p>
+ * 写入先写临时文件再原子替换,多个线程(甚至多个游戏实例)同时写同一个键也只会得到完整的文件;
+ * 读取时刷新文件修改时间,超过{@link #MAX_BYTES}时按修改时间淘汰最旧的
+ * <p>
+ **/
+public class DecompileCache {
+	/**
+	 * 缓存总大小上限,<=0时禁用
+	 */
+	public static long MAX_BYTES = Long.getLong("reciperenderer.decompileCacheMB", 64) * 1024 * 1024;
+	/**
+	 * 反编译器或它的选项的行为变化时改这个,让旧缓存全部失效
+	 */
+	private static final String VERSION = "1";
+	private static final String SUFFIX = ".java";
+	
+	public static File DIR = new File(Exporter.ROOT_DIR, ".cache/decompiled");
+	
+	/**
+	 * 上次扫描后新写入的字节数的估计,超过上限的1/8才重新扫描一次目录
+	 */
+	private static long written;
+	
+	public static boolean isEnabled() {
+		return MAX_BYTES > 0;
+	}
+	
+	public static String key(byte[] classBytes, Map<String, Object> options) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+			digest.update(classBytes);
+			new TreeMap<>(options).forEach((k, v) -> digest.update(("\n" + k + "=" + v).getBytes(StandardCharsets.UTF_8)));
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static Path path(String key) {
+		return DIR.toPath().resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+	}
+	
+	public static @Nullable String get(String key) {
+		if (!isEnabled()) return null;
+		Path path = path(key);
+		try {
+			String source = Files.readString(path, StandardCharsets.UTF_8);
+			path.toFile().setLastModified(System.currentTimeMillis());
+			return source;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			LOGGER.warn("读取反编译缓存" + path + "失败", e);
+			return null;
+		}
+	}
+	
+	public static void put(String key, String source) {
+		if (!isEnabled()) return;
+		Path path = path(key);
+		Path tmp = null;
+		try {
+			Files.createDirectories(path.getParent());
+			tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+			byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+			Files.write(tmp, bytes);
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			tmp = null;
+			afterWrite(bytes.length);
+		} catch (IOException e) {
+			LOGGER.warn("写入反编译缓存" + path + "失败", e);
+		} finally {
+			if (tmp != null) tmp.toFile().delete();
+		}
+	}
+	
+	private static synchronized void afterWrite(long size) {
+		written += size;
+		if (written < MAX_BYTES / 8) return;
+		written = 0;
+		evict();
+	}
+	
+	/**
+	 * 按修改时间从旧到新删除,直到总大小降到上限的3/4
+	 */
+	public static synchronized void evict() {
+		if (!DIR.isDirectory()) return;
+		record CacheFile(Path path, long size, long time) {
+		}
+		List<CacheFile> files = new ArrayList<>();
+		long total = 0;
+		try (Stream<Path> walk = Files.walk(DIR.toPath())) {
+			for (Path p : (Iterable<Path>) walk::iterator) {
+				if (!p.getFileName().toString().endsWith(SUFFIX)) continue;
+				File f = p.toFile();
+				long size = f.length();
+				files.add(new CacheFile(p, size, f.lastModified()));
+				total += size;
+			}
+		} catch (IOException | UncheckedIOException e) {
+			LOGGER.warn("扫描反编译缓存失败", e);
+			return;
+		}
+		if (total <= MAX_BYTES) return;
+		files.sort(Comparator.comparingLong(CacheFile::time));
+		long target = MAX_BYTES / 4 * 3;
+		int removed = 0;
+		for (CacheFile f : files) {
+			if (total <= target) break;
+			//另一个实例可能已经删掉了
+			if (f.path().toFile().delete() || !Files.exists(f.path())) {
+				total -= f.size();
+				removed++;
+			}
+		}
+		LOGGER.info("反编译缓存淘汰了{}个文件,剩余{}KB", removed, total / 1024);
+	}
+}
@@ -1,17 +1,28 @@
 package cn.breadnicecat.reciperenderer.utils;
 
+import cn.breadnicecat.reciperenderer.RecipeRenderer;
 import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.Fernflower;
+import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.extern.IBytecodeProvider;
 import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.extern.IFernflowerLogger;
 import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
 import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.main.extern.IResultSaver;
+import cn.breadnicecat.reciperenderer.includes.org.jetbrains.java.decompiler.util.InterpreterUtil;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * Created in 2024/7/25 下午11:57
@@ -23,6 +34,38 @@ import java.util.jar.Manifest;
  * <p>
  **/
 public class FernFlowerUtils {
+	/**
+	 * 同时反编译的类数,Fernflower很吃内存,所以不放在公共线程池里
+	 */
+	public static int THREADS = Math.max(1, Integer.getInteger("reciperenderer.decompileThreads", Runtime.getRuntime().availableProcessors() / 2));
+	private static final AtomicInteger threadIds = new AtomicInteger();
+	private static ExecutorService pool;
+	
+	/**
+	 * DecompilerContext是ThreadLocal的,这里每个线程同一时间只跑一个任务,所以每个任务用自己的Fernflower就互不影响
+	 * (ForkJoinPool在join时可能在同一线程上插入别的任务,不能用)
+	 */
+	public static synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(THREADS, r -> {
+				Thread t = new Thread(r, "RR-Decompiler-" + threadIds.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return pool;
+	}
+	
+	public static CompletableFuture<String> decompileAsync(Class<?> clazz) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return decompile(clazz);
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, getPool());
+	}
+	
 	public static byte[] getClassBytes(Class<?> clazz) throws IOException {
 		String className = clazz.getName().replace('.', '/') + ".class";
 		InputStream is = Objects.requireNonNull(clazz.getClassLoader().getResourceAsStream(className));
@@ -31,70 +74,244 @@ public class FernFlowerUtils {
 		return data;
 	}
 	
+	/**
+	 * 先查{@link DecompileCache},没有再反编译并写入缓存
+	 */
 	public static String decompile(Class<?> clazz) throws IOException {
-		return decompile(getClassBytes(clazz), clazz.getName());
+		byte[] bytes = getClassBytes(clazz);
+		String key = DecompileCache.key(bytes, OPTIONS);
+		String source = DecompileCache.get(key);
+		if (source != null) return source;
+		source = decompile(bytes, clazz.getName());
+		if (source != null) DecompileCache.put(key, source);
+		return source;
 	}
 	
+	public static final Map<String, Object> OPTIONS = Map.of(
+			IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1",
+			IFernflowerPreferences.REMOVE_SYNTHETIC, "1",
+			IFernflowerPreferences.BYTECODE_SOURCE_MAPPING, "1"
+	);
+	
 	public static String decompile(byte[] classBytes, String className) {
-		Map<String, Object> options = new HashMap<>();
-		options.put(IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1");
-		options.put(IFernflowerPreferences.REMOVE_SYNTHETIC, "1");
-		options.put(IFernflowerPreferences.BYTECODE_SOURCE_MAPPING, "1");
+		Map<String, Object> options = new HashMap<>(OPTIONS);
 		
 		final String[] decompiled = new String[1];
 		
-		var fernflower = new Fernflower((i, e) -> classBytes, new IResultSaver() {
-			@Override
-			public void saveClassFile(String path, String qualifiedName, String entryName, String content, int[] mapping) {
-				decompiled[0] = content;
-			}
-			
-			@Override
-			public void saveFolder(String path) {
-			}
-			
-			@Override
-			public void copyFile(String source, String path, String entryName) {
-			}
-			
-			@Override
-			public void createArchive(String path, String archiveName, Manifest manifest) {
-			}
-			
-			@Override
-			public void saveDirEntry(String path, String archiveName, String entryName) {
-			}
-			
-			@Override
-			public void copyEntry(String source, String path, String archiveName, String entry) {
-			
-			}
-			
-			@Override
-			public void saveClassEntry(String path, String archiveName, String qualifiedName, String entryName, String content) {
-			
+		var fernflower = new Fernflower((i, e) -> classBytes, new ResultSaver((name, content) -> decompiled[0] = content), options, LOGGER);
+		
+		fernflower.addSource(new File(className + ".class"));
+		fernflower.decompileContext();
+		
+		return decompiled[0];
+	}
+	
+	/**
+	 * 同一个上下文里批量反编译时的缓存键,附加了库以后结果与单独反编译不同,实际的键还要加上库本身,见{@link #batchKey(File)}
+	 */
+	private static final Map<String, Object> BATCH_KEY = Map.of(
+			IFernflowerPreferences.DECOMPILE_GENERIC_SIGNATURES, "1",
+			IFernflowerPreferences.REMOVE_SYNTHETIC, "1",
+			IFernflowerPreferences.BYTECODE_SOURCE_MAPPING, "1",
+			"rr.context", "batch"
+	);
+	/**
+	 * 所在jar超过这个大小就不作为库加入上下文(加入时会解析jar里所有的类)
+	 */
+	public static long LIBRARY_MAX_BYTES = Long.getLong("reciperenderer.decompileLibraryMB", 64) * 1024 * 1024;
+	
+	/**
+	 * 在同一个上下文里一次反编译多个类,共用的父类/内部类只解析一次,library里的类用来解析引用
+	 * <p>
+	 * 要反编译的类互为内部类时,内部类会被写进外部类的结果里,不会单独出现在返回值中
+	 *
+	 * @param classes  类名(.分隔) : 字节码
+	 * @param library  可为null,一般是这些类所在的jar
+	 * @param onResult 每个类反编译完成时立即在当前线程回调,可为null
+	 * @return 类名(.分隔) : 源码
+	 */
+	public static Map<String, String> decompileAll(Map<String, byte[]> classes, @Nullable File library, @Nullable BiConsumer<String, String> onResult) {
+		Map<String, byte[]> sources = new HashMap<>();
+		Map<String, String> result = new HashMap<>();
+		Map<String, ZipFile> archives = new HashMap<>();
+		IBytecodeProvider provider = (external, internal) -> {
+			if (internal == null) {
+				byte[] bytes = sources.get(external);
+				return bytes != null ? bytes : InterpreterUtil.getBytes(new File(external));
 			}
-			
-			@Override
-			public void closeArchive(String path, String archiveName) {
-			
+			ZipFile archive = archives.get(external);
+			if (archive == null) archives.put(external, archive = new ZipFile(external));
+			ZipEntry entry = archive.getEntry(internal);
+			if (entry == null) throw new IOException("找不到" + internal + " in " + external);
+			return InterpreterUtil.getBytes(archive, entry);
+		};
+		var fernflower = new Fernflower(provider, new ResultSaver((name, content) -> {
+			String className = name.replace('/', '.');
+			result.put(className, content);
+			if (onResult != null) onResult.accept(className, content);
+		}), new HashMap<>(OPTIONS), LOGGER);
+		try {
+			//库必须先加,否则库里同名的类会覆盖掉要反编译的类
+			if (library != null) fernflower.addLibrary(library);
+			classes.forEach((name, bytes) -> {
+				File file = new File(name + ".class");
+				sources.put(file.getAbsolutePath(), bytes);
+				fernflower.addSource(file);
+			});
+			fernflower.decompileContext();
+		} finally {
+			fernflower.clearContext();
+			archives.values().forEach(i -> {
+				try {
+					i.close();
+				} catch (IOException ignored) {
+				}
+			});
+		}
+		return result;
+	}
+	
+	/**
+	 * 按所在jar分组,每组在{@link #getPool()}上用一个上下文批量反编译,命中{@link DecompileCache}的不参与
+	 *
+	 * @return class : source
+	 */
+	public static Map<Class<?>, CompletableFuture<String>> decompileAllAsync(Collection<Class<?>> classes) {
+		Map<Class<?>, CompletableFuture<String>> futures = new HashMap<>();
+		Map<File, List<Class<?>>> groups = new HashMap<>();
+		for (Class<?> clz : classes) {
+			if (futures.containsKey(clz)) continue;
+			futures.put(clz, new CompletableFuture<>());
+			groups.computeIfAbsent(jarOf(clz), k -> new ArrayList<>()).add(clz);
+		}
+		groups.forEach((jar, group) -> getPool().execute(() -> {
+			try {
+				decompileGroup(jar, group, futures);
+			} catch (Throwable e) {
+				group.forEach(c -> futures.get(c).completeExceptionally(e));
 			}
-		}, options, new IFernflowerLogger() {
-			@Override
-			public void writeMessage(String message, Severity severity) {
+		}));
+		return futures;
+	}
+	
+	/**
+	 * 结果依赖加入的库,库的路径、大小、修改时间都算进缓存键
+	 */
+	private static Map<String, Object> batchKey(@Nullable File jar) {
+		Map<String, Object> key = new HashMap<>(BATCH_KEY);
+		key.put("rr.library", jar == null ? "-" : jar.getAbsolutePath() + "|" + jar.length() + "|" + jar.lastModified());
+		return key;
+	}
+	
+	private static void decompileGroup(@Nullable File jar, List<Class<?>> group, Map<Class<?>, CompletableFuture<String>> futures) throws IOException {
+		Map<String, Class<?>> byName = new HashMap<>();
+		Map<String, byte[]> misses = new LinkedHashMap<>();
+		Map<String, String> keys = new HashMap<>();
+		Map<String, Object> options = batchKey(jar);
+		for (Class<?> clz : group) {
+			byte[] bytes = getClassBytes(clz);
+			String key = DecompileCache.key(bytes, options);
+			String cached = DecompileCache.get(key);
+			if (cached != null) {
+				futures.get(clz).complete(cached);
+			} else {
+				byName.put(clz.getName(), clz);
+				misses.put(clz.getName(), bytes);
+				keys.put(clz.getName(), key);
 			}
-			
-			@Override
-			public void writeMessage(String message, Severity severity, Throwable t) {
+		}
+		if (misses.isEmpty()) return;
+		Map<String, String> result;
+		try {
+			result = decompileAll(misses, jar, (name, content) -> {
+				Class<?> clz = byName.get(name);
+				if (clz == null) return;
+				DecompileCache.put(keys.get(name), content);
+				futures.get(clz).complete(content);
+			});
+		} catch (Exception e) {
+			RecipeRenderer.LOGGER.warn("批量反编译" + (jar == null ? "" : jar.getName()) + "失败,逐个重试" + misses.size() + "个类", e);
+			result = Map.of();
+		}
+		//被写进外部类里的内部类,或者整个上下文失败时,单独再来一次(失败前已经完成的除外)
+		Map<String, String> done = result;
+		misses.forEach((name, bytes) -> {
+			if (done.containsKey(name) || futures.get(byName.get(name)).isDone()) return;
+			String source = decompile(bytes, name);
+			if (source != null) {
+				DecompileCache.put(keys.get(name), source);
+				futures.get(byName.get(name)).complete(source);
+			} else {
+				futures.get(byName.get(name)).completeExceptionally(new IllegalStateException("无法反编译" + name));
 			}
 		});
+	}
+	
+	/**
+	 * @return 不是普通jar文件(开发环境的目录,NeoForge的union文件系统等)或者太大时为null
+	 */
+	private static @Nullable File jarOf(Class<?> clz) {
+		try {
+			CodeSource source = clz.getProtectionDomain().getCodeSource();
+			if (source == null || source.getLocation() == null) return null;
+			File file = new File(source.getLocation().toURI());
+			return file.isFile() && file.getName().endsWith(".jar") && file.length() <= LIBRARY_MAX_BYTES ? file : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * 只关心单个.class作为源的结果
+	 */
+	private record ResultSaver(BiConsumer<String, String> onClass) implements IResultSaver {
+		@Override
+		public void saveClassFile(String path, String qualifiedName, String entryName, String content, int[] mapping) {
+			onClass.accept(qualifiedName, content);
+		}
 		
-		fernflower.addSource(new File(className + ".class"));
-		fernflower.decompileContext();
+		@Override
+		public void saveFolder(String path) {
+		}
 		
-		return decompiled[0];
+		@Override
+		public void copyFile(String source, String path, String entryName) {
+		}
+		
+		@Override
+		public void createArchive(String path, String archiveName, Manifest manifest) {
+		}
+		
+		@Override
+		public void saveDirEntry(String path, String archiveName, String entryName) {
+		}
+		
+		@Override
+		public void copyEntry(String source, String path, String archiveName, String entry) {
+		
+		}
+		
+		@Override
+		public void saveClassEntry(String path, String archiveName, String qualifiedName, String entryName, String content) {
+		
+		}
+		
+		@Override
+		public void closeArchive(String path, String archiveName) {
+		
+		}
 	}
 	
+	private static final IFernflowerLogger LOGGER = new IFernflowerLogger() {
+		@Override
+		public void writeMessage(String message, Severity severity) {
+		}
+		
+		@Override
+		public void writeMessage(String message, Severity severity, Throwable t) {
+		}
+	};
+	
 	@Deprecated(forRemoval = true)
 	public static void main(String[] args) throws IOException {
 		System.out.println(decompile(FernFlowerUtils.class));
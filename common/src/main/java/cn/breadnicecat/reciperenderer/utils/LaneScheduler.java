@@ -0,0 +1,179 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import com.google.gson.JsonObject;
+import net.minecraft.util.profiling.ProfilerFiller;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static cn.breadnicecat.reciperenderer.RecipeRenderer.LOGGER;
+
+/**
+ * Created in 2026/10/18 00:48
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 渲染线程每帧的任务调度: 每个{@link Lane}一条独立的{@link TaskChain},批量导出时预览窗口不用排在几千个图标后面
+ * <p>
+ * FAIR(默认): 有任务的通道按权重分帧预算,用不完的再按优先级补给其它通道;
+ * STRICT: 按优先级依次执行,前面的通道用完预算后面的就等下一帧。两种模式下每个有任务的通道每帧都至少执行一个任务(STRICT时预算用完的除外)
+ * <p>
+ **/
+public class LaneScheduler {
+	public enum Lane {
+		/**
+		 * 玩家正在看的东西(实体预览等)
+		 */
+		INTERACTIVE(8),
+		/**
+		 * 导出的图标渲染
+		 */
+		BULK(4),
+		/**
+		 * 其它不着急的工作(Worldly等)
+		 */
+		MAINTENANCE(1);
+		
+		final int defaultWeight;
+		
+		Lane(int defaultWeight) {
+			this.defaultWeight = defaultWeight;
+		}
+		
+		public String key() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+	
+	public enum Mode {
+		FAIR, STRICT
+	}
+	
+	public static Mode MODE = parseMode(System.getProperty("reciperenderer.laneMode", "FAIR"));
+	
+	private final Map<Lane, TaskChain> chains = new EnumMap<>(Lane.class);
+	private final Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+	private final long frameBudgetNs;
+	private long overruns;
+	
+	/**
+	 * @param budgetMs 每帧所有通道加起来最多执行多长时间,<=0时不限制
+	 */
+	public LaneScheduler(long budgetMs) {
+		frameBudgetNs = budgetMs > 0 ? budgetMs * 1_000_000L : Long.MAX_VALUE;
+		for (Lane lane : Lane.values()) {
+			chains.put(lane, new TaskChain(budgetMs));
+			weights.put(lane, Math.max(1, Integer.getInteger("reciperenderer.laneWeight." + lane.key(), lane.defaultWeight)));
+		}
+	}
+	
+	/**
+	 * 任意线程调用,不会阻塞
+	 */
+	public void add(Lane lane, Runnable runnable) {
+		chains.get(lane).add(runnable);
+	}
+	
+	public TaskChain get(Lane lane) {
+		return chains.get(lane);
+	}
+	
+	/**
+	 * 只能在渲染线程调用
+	 */
+	public void run(ProfilerFiller profiler) {
+		long start = System.nanoTime();
+		if (MODE == Mode.STRICT || frameBudgetNs == Long.MAX_VALUE) {
+			for (Lane lane : Lane.values()) {
+				long left = frameBudgetNs == Long.MAX_VALUE ? Long.MAX_VALUE : frameBudgetNs - (System.nanoTime() - start);
+				if (left <= 0) break;
+				runLane(profiler, lane, left);
+			}
+		} else {
+			int total = 0;
+			for (Lane lane : Lane.values()) {
+				if (chains.get(lane).hasNext()) total += weights.get(lane);
+			}
+			if (total > 0) {
+				//先按权重分
+				for (Lane lane : Lane.values()) {
+					if (!chains.get(lane).hasNext()) continue;
+					runLane(profiler, lane, frameBudgetNs * weights.get(lane) / total);
+				}
+				//剩下的按优先级补,剩余时间不够跑一个任务的就不补了(run至少会执行一个)
+				for (Lane lane : Lane.values()) {
+					long left = frameBudgetNs - (System.nanoTime() - start);
+					if (left <= 0) break;
+					TaskChain chain = chains.get(lane);
+					if (chain.hasNext() && chain.getAvgTaskNs() < left) runLane(profiler, lane, left);
+				}
+			}
+		}
+		if (System.nanoTime() - start > frameBudgetNs) {
+			overruns++;
+			profiler.incrementCounter("rr_frame_overrun");
+		}
+	}
+	
+	/**
+	 * 写错了不能让静态初始化失败(RecipeRenderer会跟着加载不了),退回FAIR
+	 */
+	private static Mode parseMode(String value) {
+		try {
+			return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LOGGER.warn("未知的reciperenderer.laneMode:{},可用的有{},使用FAIR", value, Arrays.toString(Mode.values()));
+			return Mode.FAIR;
+		}
+	}
+	
+	private void runLane(ProfilerFiller profiler, Lane lane, long capNs) {
+		profiler.push("lane_" + lane.key());
+		chains.get(lane).run(profiler, capNs);
+		profiler.pop();
+	}
+	
+	public boolean hasNext() {
+		for (TaskChain chain : chains.values()) {
+			if (chain.hasNext()) return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return 超出整帧预算的帧数
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+	
+	public String describe() {
+		StringJoiner joiner = new StringJoiner("\n", MODE + "模式, 超预算" + overruns + "帧\n", "");
+		chains.forEach((lane, chain) -> joiner.add(lane.key() + ": 排队" + chain.getQueueDepth()
+				+ ", 已执行" + chain.getLatencyCount()
+				+ ", 等待 平均" + chain.getAvgLatencyNs() / 1_000_000 + "ms/最近" + chain.getRecentLatencyNs() / 1_000_000
+				+ "ms/最大" + chain.getMaxLatencyNs() / 1_000_000 + "ms"));
+		return joiner.toString();
+	}
+	
+	public JsonObject toJson() {
+		JsonObject object = new JsonObject();
+		object.addProperty("mode", MODE.name());
+		object.addProperty("overruns", overruns);
+		chains.forEach((lane, chain) -> {
+			JsonObject o = new JsonObject();
+			o.addProperty("weight", weights.get(lane));
+			o.addProperty("depth", chain.getQueueDepth());
+			o.addProperty("count", chain.getLatencyCount());
+			o.addProperty("avg_latency_ms", chain.getAvgLatencyNs() / 1e6);
+			o.addProperty("recent_latency_ms", chain.getRecentLatencyNs() / 1e6);
+			o.addProperty("max_latency_ms", chain.getMaxLatencyNs() / 1e6);
+			object.add(lane.key(), o);
+		});
+		return object;
+	}
+}
@@ -0,0 +1,60 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.resources.language.ClientLanguage;
+import net.minecraft.server.packs.PackResources;
+import net.minecraft.server.packs.resources.ResourceManager;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created in 2026/10/17 17:40
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 导出用的语言表缓存,资源包列表(按实例比较,重载资源后实例都会换掉)不变时直接复用,不用每次导出都重新加载
+ * <p>
+ * 除en_us外的语言都以en_us作为后备,与游戏内一致
+ * <p>
+ **/
+public class LanguageCache {
+	private record State(List<PackResources> packs, ConcurrentHashMap<String, ClientLanguage> tables) {
+	}
+	
+	private static State state = new State(List.of(), new ConcurrentHashMap<>());
+	
+	/**
+	 * 可以在任意线程调用,不同语言可以同时加载
+	 */
+	public static ClientLanguage get(String locale) {
+		ResourceManager manager = Minecraft.getInstance().getResourceManager();
+		return current(manager).tables.computeIfAbsent(locale, l ->
+				ClientLanguage.loadFrom(manager, l.equals("en_us") ? List.of("en_us") : List.of("en_us", l), false));
+	}
+	
+	public static Localizer localizer(String locale) {
+		return new Localizer(locale, get(locale));
+	}
+	
+	private static synchronized State current(ResourceManager manager) {
+		List<PackResources> packs = manager.listPacks().toList();
+		if (!sameInstances(packs, state.packs)) {
+			state = new State(packs, new ConcurrentHashMap<>());
+		}
+		return state;
+	}
+	
+	private static boolean sameInstances(List<PackResources> a, List<PackResources> b) {
+		if (a.size() != b.size()) return false;
+		for (int i = 0; i < a.size(); i++) {
+			if (a.get(i) != b.get(i)) return false;
+		}
+		return true;
+	}
+	
+	public static synchronized void clear() {
+		state = new State(List.of(), new ConcurrentHashMap<>());
+	}
+}
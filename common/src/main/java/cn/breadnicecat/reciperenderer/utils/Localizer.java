@@ -0,0 +1,87 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import net.minecraft.locale.Language;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.contents.TranslatableContents;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Created in 2026/10/17 17:13
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 用指定的语言表把组件解析成字符串,不经过{@link Language#getInstance()}也不修改组件里缓存的翻译结果,
+ * 所以可以在任意线程上同时解析多种语言
+ * <p>
+ * 格式化规则与{@link TranslatableContents}一致(%s, %n$s, %%),只有翻译组件会被翻译,其它组件按原样输出
+ * <p>
+ **/
+public class Localizer {
+	private static final Pattern FORMAT = Pattern.compile("%(?:(\\d+)\\$)?([A-Za-z%]|$)");
+	/**
+	 * 防止参数里的组件互相引用
+	 */
+	private static final int MAX_DEPTH = 16;
+	
+	public final String locale;
+	private final Language language;
+	
+	public Localizer(String locale, Language language) {
+		this.locale = locale;
+		this.language = language;
+	}
+	
+	public String resolve(Component component) {
+		StringBuilder sb = new StringBuilder();
+		append(component, sb, 0);
+		return sb.toString();
+	}
+	
+	private void append(Component component, StringBuilder sb, int depth) {
+		if (depth > MAX_DEPTH) return;
+		if (component.getContents() instanceof TranslatableContents t) {
+			String template = t.getFallback() != null ? language.getOrDefault(t.getKey(), t.getFallback()) : language.getOrDefault(t.getKey());
+			format(template, t.getArgs(), sb, depth);
+		} else {
+			component.getContents().visit(s -> {
+				sb.append(s);
+				return Optional.empty();
+			});
+		}
+		for (Component sibling : component.getSiblings()) {
+			append(sibling, sb, depth + 1);
+		}
+	}
+	
+	private void format(String template, Object[] args, StringBuilder sb, int depth) {
+		Matcher matcher = FORMAT.matcher(template);
+		int index = 0;
+		int end = 0;
+		while (matcher.find(end)) {
+			sb.append(template, end, matcher.start());
+			String type = matcher.group(2);
+			String whole = template.substring(matcher.start(), matcher.end());
+			if ("%%".equals(whole)) {
+				sb.append('%');
+			} else if ("s".equals(type)) {
+				String n = matcher.group(1);
+				int i = n != null ? Integer.parseInt(n) - 1 : index++;
+				if (i >= 0 && i < args.length) {
+					Object arg = args[i];
+					if (arg instanceof Component c) append(c, sb, depth + 1);
+					else sb.append(arg);
+				}
+			} else {
+				//原版遇到不支持的格式会把整个模板原样输出,这里只原样输出这一段
+				sb.append(whole);
+			}
+			end = matcher.end();
+			if (end >= template.length()) break;
+		}
+		if (end < template.length()) sb.append(template, end, template.length());
+	}
+}
@@ -0,0 +1,362 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Created in 2026/10/17 14:18
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 替代ZipOutputStream的zip写入器:
+ * <p>
+ * 已经压缩过的附件(png等)直接STORED,不再浪费CPU二次压缩;
+ * 其它条目按{@link #CHUNK_SIZE}切块,在executor上并行deflate(每块以前一块末尾32KB为预设字典,SYNC_FLUSH结尾),
+ * 再按顺序拼接成一个合法的deflate流(与pigz同理);压缩好的块按顺序直接写出,crc和长度写在条目末尾的数据描述符里
+ * <p>
+ * 只能由一个线程调用,条目数或偏移超限时自动写zip64结尾
+ * <p>
+ **/
+public class ParallelZipWriter implements Closeable {
+	public static int CHUNK_SIZE = 1 << 20;
+	private static final int DICT_SIZE = 32 * 1024;
+	private static final int FLAG_UTF8 = 0x0800;
+	/**
+	 * crc和长度在数据之后的数据描述符里
+	 */
+	private static final int FLAG_DESCRIPTOR = 0x0008;
+	private static final int STORED = 0, DEFLATED = 8;
+	private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+	
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+	private final List<Entry> entries = new ArrayList<>();
+	private final int dosTime, dosDate;
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private byte[] comment = new byte[0];
+	private long offset;
+	/**
+	 * 从堆外缓冲拷贝到输出流的中转,大小固定
+	 */
+	private final byte[] transfer = new byte[8192];
+	private @Nullable SpanProfiler profiler;
+	
+	public ParallelZipWriter(OutputStream out, ExecutorService executor) {
+		this.out = new BufferedOutputStream(out, 1 << 16);
+		this.executor = executor;
+		LocalDateTime t = LocalDateTime.now();
+		dosTime = t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() >> 1;
+		dosDate = (t.getYear() - 1980) << 9 | t.getMonthValue() << 5 | t.getDayOfMonth();
+	}
+	
+	public void setLevel(int level) {
+		this.level = level;
+	}
+	
+	public void setProfiler(@Nullable SpanProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	public void setComment(String comment) {
+		this.comment = comment.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * png之类本身已经压缩过的格式
+	 */
+	public static boolean isPrecompressed(String name) {
+		String n = name.toLowerCase(Locale.ROOT);
+		return n.endsWith(".png") || n.endsWith(".gif") || n.endsWith(".jpg") || n.endsWith(".zip") || n.endsWith(".jar");
+	}
+	
+	/**
+	 * 按文件名自动选择STORED或DEFLATED
+	 */
+	public void write(String name, byte[] data) throws IOException {
+		if (isPrecompressed(name)) writeStored(name, data);
+		else writeDeflated(name, new ByteArrayInputStream(data));
+	}
+	
+	public void writeStored(String name, byte[] data) throws IOException {
+		long start = System.nanoTime();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		writeEntry(name, STORED, crc.getValue(), data.length, List.of(data));
+		if (profiler != null) profiler.record("zip/stored", System.nanoTime() - start, data.length);
+	}
+	
+	/**
+	 * 按文件名自动选择STORED或DEFLATED,STORED时从data(可以是堆外的)直接拷贝进输出流,不经过完整的byte[]
+	 *
+	 * @param crc data的CRC32,由调用者提前算好
+	 */
+	public void write(String name, ByteBuffer data, long crc) throws IOException {
+		if (!isPrecompressed(name)) {
+			writeDeflated(name, new ByteBufferInputStream(data));
+			return;
+		}
+		long start = System.nanoTime();
+		long size = data.remaining();
+		writeEntry(name, STORED, crc, size, List.of());
+		ByteBuffer src = data.duplicate();
+		while (src.hasRemaining()) {
+			int n = Math.min(src.remaining(), transfer.length);
+			src.get(transfer, 0, n);
+			out.write(transfer, 0, n);
+		}
+		offset += size;
+		if (profiler != null) profiler.record("zip/stored", System.nanoTime() - start, size);
+	}
+	
+	/**
+	 * 文件原样写入(STORED),先读一遍算crc再读一遍写入,不会整个读进内存;
+	 * 需要在zip里直接mmap的条目(例如.rrb)要用这个
+	 */
+	public void writeStored(String name, Path file) throws IOException {
+		long start = System.nanoTime();
+		CRC32 crc = new CRC32();
+		long size;
+		try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+			size = in.transferTo(OutputStream.nullOutputStream());
+		}
+		writeEntry(name, STORED, crc.getValue(), size, List.of());
+		try (InputStream in = Files.newInputStream(file)) {
+			long n = in.transferTo(out);
+			if (n != size) throw new IOException("写入" + name + "时文件被修改");
+			offset += n;
+		}
+		if (profiler != null) profiler.record("zip/stored", System.nanoTime() - start, size);
+	}
+	
+	/**
+	 * 从in中流式读取并行压缩,同时在途的块数不超过cpu核数,每块压缩完就按顺序写出,读完后不会关闭in
+	 */
+	public void writeDeflated(String name, InputStream in) throws IOException {
+		long start = System.nanoTime();
+		CRC32 crc = new CRC32();
+		ArrayDeque<Future<byte[]>> inflight = new ArrayDeque<>();
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		long headerOffset = offset;
+		writeLocalHeader(nameBytes, DEFLATED, FLAG_UTF8 | FLAG_DESCRIPTOR, 0, 0, 0);
+		long dataStart = offset;
+		long size = 0;
+		byte[] dict = null;
+		byte[] chunk = in.readNBytes(CHUNK_SIZE);
+		try {
+			while (true) {
+				byte[] next = chunk.length < CHUNK_SIZE ? new byte[0] : in.readNBytes(CHUNK_SIZE);
+				boolean last = next.length == 0;
+				crc.update(chunk);
+				size += chunk.length;
+				byte[] c = chunk, d = dict;
+				inflight.add(executor.submit(() -> deflate(c, d, last)));
+				if (inflight.size() >= parallelism) writeBytes(inflight.poll().get());
+				if (last) break;
+				dict = Arrays.copyOfRange(chunk, Math.max(0, chunk.length - DICT_SIZE), chunk.length);
+				chunk = next;
+			}
+			while (!inflight.isEmpty()) writeBytes(inflight.poll().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			throw new IOException("压缩" + name + "失败", e.getCause());
+		} finally {
+			inflight.forEach(f -> f.cancel(true));
+		}
+		long csize = offset - dataStart;
+		if (size >= ZIP32_LIMIT || csize >= ZIP32_LIMIT) throw new IOException("条目" + name + "超过4GB");
+		writeInt(0x08074b50);
+		writeInt(crc.getValue());
+		writeInt(csize);
+		writeInt(size);
+		entries.add(new Entry(nameBytes, DEFLATED, FLAG_UTF8 | FLAG_DESCRIPTOR, crc.getValue(), csize, size, headerOffset));
+		//包含从in读取的时间
+		if (profiler != null) profiler.record("zip/deflated", System.nanoTime() - start, size);
+	}
+	
+	private byte[] deflate(byte[] chunk, byte[] dict, boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dict != null) deflater.setDictionary(dict);
+			deflater.setInput(chunk);
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(chunk.length / 2 + 64);
+			byte[] buf = new byte[1 << 16];
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					bos.write(buf, 0, deflater.deflate(buf));
+				}
+			} else {
+				//SYNC_FLUSH让这一块结束在字节边界上,才能和下一块直接拼接
+				int n;
+				do {
+					n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+					bos.write(buf, 0, n);
+				} while (n == buf.length || !deflater.needsInput());
+			}
+			return bos.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * @param data 为空时只写入头部,由调用者紧接着写入size字节(只用于STORED)
+	 */
+	private void writeEntry(String name, int method, long crc, long size, List<byte[]> data) throws IOException {
+		long csize = data.isEmpty() && method == STORED ? size : 0;
+		for (byte[] b : data) csize += b.length;
+		if (size >= ZIP32_LIMIT || csize >= ZIP32_LIMIT) throw new IOException("条目" + name + "超过4GB");
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		entries.add(new Entry(nameBytes, method, FLAG_UTF8, crc, csize, size, offset));
+		writeLocalHeader(nameBytes, method, FLAG_UTF8, crc, csize, size);
+		for (byte[] b : data) writeBytes(b);
+	}
+	
+	/**
+	 * 带{@link #FLAG_DESCRIPTOR}时crc和长度都写0,真实值在数据之后
+	 */
+	private void writeLocalHeader(byte[] nameBytes, int method, int flags, long crc, long csize, long size) throws IOException {
+		writeInt(0x04034b50);
+		writeShort(20);
+		writeShort(flags);
+		writeShort(method);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(crc);
+		writeInt(csize);
+		writeInt(size);
+		writeShort(nameBytes.length);
+		writeShort(0);
+		writeBytes(nameBytes);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		try {
+			long cdStart = offset;
+			for (Entry e : entries) {
+				boolean zip64 = e.offset >= ZIP32_LIMIT;
+				writeInt(0x02014b50);
+				writeShort(zip64 ? 45 : 20);
+				writeShort(zip64 ? 45 : 20);
+				writeShort(e.flags);
+				writeShort(e.method);
+				writeShort(dosTime);
+				writeShort(dosDate);
+				writeInt(e.crc);
+				writeInt(e.csize);
+				writeInt(e.size);
+				writeShort(e.name.length);
+				writeShort(zip64 ? 12 : 0);
+				writeShort(0);
+				writeShort(0);
+				writeShort(0);
+				writeInt(0);
+				writeInt(zip64 ? ZIP32_LIMIT : e.offset);
+				writeBytes(e.name);
+				if (zip64) {
+					writeShort(0x0001);
+					writeShort(8);
+					writeLong(e.offset);
+				}
+			}
+			long cdEnd = offset;
+			long cdSize = cdEnd - cdStart;
+			boolean zip64 = entries.size() >= 0xFFFF || cdStart >= ZIP32_LIMIT || cdSize >= ZIP32_LIMIT;
+			if (zip64) {
+				writeInt(0x06064b50);
+				writeLong(44);
+				writeShort(45);
+				writeShort(45);
+				writeInt(0);
+				writeInt(0);
+				writeLong(entries.size());
+				writeLong(entries.size());
+				writeLong(cdSize);
+				writeLong(cdStart);
+				writeInt(0x07064b50);
+				writeInt(0);
+				writeLong(cdEnd);
+				writeInt(1);
+			}
+			writeInt(0x06054b50);
+			writeShort(0);
+			writeShort(0);
+			writeShort(zip64 ? 0xFFFF : entries.size());
+			writeShort(zip64 ? 0xFFFF : entries.size());
+			writeInt(zip64 ? ZIP32_LIMIT : cdSize);
+			writeInt(zip64 ? ZIP32_LIMIT : cdStart);
+			writeShort(comment.length);
+			writeBytes(comment);
+		} finally {
+			out.close();
+		}
+	}
+	
+	private void writeShort(int v) throws IOException {
+		out.write(v & 0xFF);
+		out.write(v >>> 8 & 0xFF);
+		offset += 2;
+	}
+	
+	private void writeInt(long v) throws IOException {
+		writeShort((int) (v & 0xFFFF));
+		writeShort((int) (v >>> 16 & 0xFFFF));
+	}
+	
+	private void writeLong(long v) throws IOException {
+		writeInt(v & 0xFFFFFFFFL);
+		writeInt(v >>> 32);
+	}
+	
+	private void writeBytes(byte[] b) throws IOException {
+		out.write(b);
+		offset += b.length;
+	}
+	
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buf;
+		
+		ByteBufferInputStream(ByteBuffer buf) {
+			this.buf = buf.duplicate();
+		}
+		
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) return 0;
+			if (!buf.hasRemaining()) return -1;
+			int n = Math.min(len, buf.remaining());
+			buf.get(b, off, n);
+			return n;
+		}
+	}
+	
+	private record Entry(byte[] name, int method, int flags, long crc, long csize, long size, long offset) {
+	}
+}
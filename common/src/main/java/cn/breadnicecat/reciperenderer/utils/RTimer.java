@@ -41,8 +41,11 @@ public class RTimer {
 		return get() < 1000 ? getStringMs() : (get() > 60 * 1000 ? getStringMinuteSecond() : getStringSecond());
 	}
 	
+	/**
+	 * 单调时钟,不受系统时间调整影响
+	 */
 	private long ms() {
-		return System.currentTimeMillis();
+		return System.nanoTime() / 1_000_000L;
 	}
 	
 	@Override
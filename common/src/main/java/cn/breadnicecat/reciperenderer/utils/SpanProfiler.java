@@ -0,0 +1,147 @@
+package cn.breadnicecat.reciperenderer.utils;
+
+import com.google.gson.JsonObject;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Created in 2026/10/17 20:12
+ * Project: reciperenderer
+ *
+ * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
+ * <p>
+ * 导出用的纳秒级分段计时,线程安全
+ * <p>
+ * 同一线程上嵌套的span路径自动拼成"父/子";异步的阶段(渲染回读,编码等)用{@link #record}直接给出路径和耗时
+ * <p>
+ * 每个路径记录次数,总耗时,字节数,以及最多{@link #RESERVOIR}个样本(蓄水池抽样)用来估计p50/p95/p99
+ * <p>
+ **/
+public class SpanProfiler {
+	private static final int RESERVOIR = 4096;
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+	
+	private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+	
+	public Span start(String name) {
+		Span parent = CURRENT.get();
+		String path = parent != null && parent.owner() == this ? parent.path + "/" + name : name;
+		Span span = new Span(path, parent);
+		CURRENT.set(span);
+		return span;
+	}
+	
+	public void record(String path, long nanos, long bytes) {
+		stats.computeIfAbsent(path, k -> new Stat()).add(nanos, bytes);
+	}
+	
+	public void record(String path, long nanos) {
+		record(path, nanos, 0);
+	}
+	
+	public final class Span implements AutoCloseable {
+		private final String path;
+		private final Span parent;
+		private final long start = System.nanoTime();
+		private long bytes;
+		private boolean closed;
+		
+		private Span(String path, Span parent) {
+			this.path = path;
+			this.parent = parent;
+		}
+		
+		public Span bytes(long bytes) {
+			this.bytes += bytes;
+			return this;
+		}
+		
+		private SpanProfiler owner() {
+			return SpanProfiler.this;
+		}
+		
+		@Override
+		public void close() {
+			if (closed) return;
+			closed = true;
+			record(path, System.nanoTime() - start, bytes);
+			if (CURRENT.get() == this) {
+				if (parent != null) CURRENT.set(parent);
+				else CURRENT.remove();
+			}
+		}
+	}
+	
+	private static class Stat {
+		long count, total, bytes, max;
+		long[] samples = new long[16];
+		int n;
+		
+		synchronized void add(long nanos, long bytes) {
+			count++;
+			total += nanos;
+			this.bytes += bytes;
+			max = Math.max(max, nanos);
+			if (n < RESERVOIR) {
+				if (n == samples.length) samples = Arrays.copyOf(samples, Math.min(RESERVOIR, n * 2));
+				samples[n++] = nanos;
+			} else {
+				long j = ThreadLocalRandom.current().nextLong(count);
+				if (j < RESERVOIR) samples[(int) j] = nanos;
+			}
+		}
+		
+		synchronized JsonObject toJson() {
+			JsonObject o = new JsonObject();
+			o.addProperty("count", count);
+			o.addProperty("total_ms", ms(total));
+			if (bytes > 0) o.addProperty("bytes", bytes);
+			long[] sorted = Arrays.copyOf(samples, n);
+			Arrays.sort(sorted);
+			o.addProperty("p50_ms", ms(percentile(sorted, 0.50)));
+			o.addProperty("p95_ms", ms(percentile(sorted, 0.95)));
+			o.addProperty("p99_ms", ms(percentile(sorted, 0.99)));
+			o.addProperty("max_ms", ms(max));
+			return o;
+		}
+	}
+	
+	private static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0) return 0;
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+	
+	private static double ms(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+	
+	/**
+	 * 按路径展开成树: {"collect": {"count":.., ..., "children": {"item": {...}}}}
+	 */
+	public JsonObject toJson() {
+		TreeMap<String, Stat> sorted = new TreeMap<>(stats);
+		JsonObject root = new JsonObject();
+		sorted.forEach((path, stat) -> {
+			JsonObject parent = root;
+			String[] parts = path.split("/");
+			for (int i = 0; i < parts.length - 1; i++) {
+				parent = child(parent, parts[i]);
+				if (!parent.has("children")) parent.add("children", new JsonObject());
+				parent = parent.getAsJsonObject("children");
+			}
+			JsonObject node = child(parent, parts[parts.length - 1]);
+			stat.toJson().entrySet().forEach(e -> node.add(e.getKey(), e.getValue()));
+		});
+		return root;
+	}
+	
+	private static JsonObject child(JsonObject parent, String name) {
+		JsonObject o = parent.getAsJsonObject(name);
+		if (o == null) parent.add(name, o = new JsonObject());
+		return o;
+	}
+}
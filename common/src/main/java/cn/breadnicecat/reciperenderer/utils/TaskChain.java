@@ -4,7 +4,11 @@ import net.minecraft.util.profiling.InactiveProfiler;
 import net.minecraft.util.profiling.ProfilerFiller;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Created in 2024/8/4 下午5:29
@@ -12,15 +16,61 @@ import java.util.Scanner;
  *
  * @author <a href="https://github.com/Bread-Nicecat">Bread_NiceCat</a>
  * <p>
- *
+ * 多生产者单消费者的任务链: 任意线程{@link #add}/{@link #endFrame},只有渲染线程{@link #run}
+ * <p>
+ * 无锁(Vyukov的侵入式MPSC队列): 生产者用一次getAndSet抢到tail再把旧tail的next指向自己,消费者只读next,
+ * 两边不会互相阻塞;生产者刚抢到tail还没链上时消费者会暂时看不到它,下一帧再执行
  * <p>
  **/
 public class TaskChain {
+	/**
+	 * 每帧预算的下限比例,超时后预算最多缩到这么多
+	 */
+	private static final int MIN_BUDGET_DIVISOR = 4;
 	
-	Task cur, tail;
+	/**
+	 * 只有消费者访问
+	 */
+	Task cur;
+	final AtomicReference<Task> tail;
+	/**
+	 * 目标每帧预算,Long.MAX_VALUE表示不限制(即每帧跑完到帧边界)
+	 */
+	private final long targetBudgetNs;
+	/**
+	 * 根据上一帧是否超时动态调整的实际预算
+	 */
+	private long budgetNs;
+	/**
+	 * 单个任务耗时的指数移动平均,用来预测下一个任务会不会超预算
+	 */
+	private double avgTaskNs;
+	/**
+	 * 入队数由生产者累加(LongAdder不会在生产者之间争用),出队数只有消费者写
+	 */
+	private final LongAdder enqueued = new LongAdder();
+	private volatile long dequeued;
+	private int lastTasksPerFrame;
+	private long lastFrameNs;
+	private long overruns;
+	/**
+	 * 从add到开始执行的等待时间,只有消费者写
+	 */
+	private volatile long latencyCount, latencySumNs, latencyMaxNs;
+	private volatile double latencyEmaNs;
 	
 	public TaskChain() {
-		cur = tail = new Break();
+		this(-1);
+	}
+	
+	/**
+	 * @param budgetMs 每帧最多执行多长时间,<=0时不限制
+	 */
+	public TaskChain(long budgetMs) {
+		cur = new Break(true);
+		tail = new AtomicReference<>(cur);
+		targetBudgetNs = budgetMs > 0 ? budgetMs * 1_000_000L : Long.MAX_VALUE;
+		budgetNs = targetBudgetNs;
 	}
 	
 	public void run() {
@@ -28,58 +78,191 @@ public class TaskChain {
 	}
 	
 	public void run(ProfilerFiller profiler) {
+		run(profiler, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * @param capNs 本帧的预算上限(例如{@link LaneScheduler}分给这条链的份额),与自身的预算取较小值;至少会执行一个任务
+	 */
+	public void run(ProfilerFiller profiler, long capNs) {
 		profiler.push("run_TaskChain");
+		int ran = 0;
+		long start = System.nanoTime();
+		long elapsed = 0;
+		long budget = Math.min(budgetNs, capNs);
 		if (cur.hasNext()) {
-			profiler.push("wait_synchronized");
-			synchronized (this) {
-				profiler.pop();
-				tail = tail.bind(new Break());
-			}
+			Task marker = new Break(true);
+			append(marker);
 			do {
-				cur = cur.next;
-				if (cur instanceof Break) {
-					break;
-				} else cur.run();
+				//至少跑一个,保证有进度
+				if (ran > 0 && elapsed + avgTaskNs > budget) break;
+				Task next = cur.getNext();
+				if (next instanceof Break br) {
+					cur = next;
+					//之前帧因为预算没跑到的自动帧边界直接跳过,本帧的边界和手动的边界要停下
+					if (br == marker || !br.auto) {
+						//连续的边界(例如手动边界紧跟着本帧的边界)只算一个,不然会空转一帧
+						while (cur.getNext() instanceof Break) cur = cur.getNext();
+						break;
+					}
+					continue;
+				}
+				long t = System.nanoTime();
+				recordLatency(t - next.enqueuedNs);
+				try {
+					next.run();
+				} finally {
+					cur = next;
+					dequeued++;
+					long cost = System.nanoTime() - t;
+					avgTaskNs = avgTaskNs == 0 ? cost : avgTaskNs * 0.9 + cost * 0.1;
+					ran++;
+					elapsed = System.nanoTime() - start;
+				}
 			} while (cur.hasNext());
 		}
+		adapt(elapsed);
+		lastTasksPerFrame = ran;
+		lastFrameNs = elapsed;
+		profiler.incrementCounter("rr_tasks_per_frame", ran);
+		profiler.incrementCounter("rr_queue_depth", getQueueDepth());
+		if (elapsed > targetBudgetNs) {
+			overruns++;
+			profiler.incrementCounter("rr_budget_overrun");
+		}
 		profiler.pop();
 	}
 	
+	/**
+	 * 只有消费者调用
+	 */
+	private void recordLatency(long ns) {
+		latencyCount++;
+		latencySumNs += ns;
+		if (ns > latencyMaxNs) latencyMaxNs = ns;
+		latencyEmaNs = latencyEmaNs == 0 ? ns : latencyEmaNs * 0.9 + ns * 0.1;
+	}
+	
+	private void adapt(long elapsed) {
+		if (targetBudgetNs == Long.MAX_VALUE) return;
+		if (elapsed > targetBudgetNs) {
+			//超了多少就从下一帧扣掉多少
+			budgetNs = Math.max(targetBudgetNs / MIN_BUDGET_DIVISOR, budgetNs - (elapsed - targetBudgetNs));
+		} else {
+			budgetNs += (targetBudgetNs - budgetNs) / 4;
+		}
+	}
+	
 	public boolean hasNext() {
 		return cur.hasNext();
 	}
 	
+	/**
+	 * @return 还未执行的任务数
+	 */
+	public int getQueueDepth() {
+		return (int) Math.max(0, enqueued.sum() - dequeued);
+	}
 	
-	private void add(Task task) {
-		synchronized (this) {
-			tail = tail.bind(task);
-		}
+	public int getLastTasksPerFrame() {
+		return lastTasksPerFrame;
+	}
+	
+	public long getLastFrameNs() {
+		return lastFrameNs;
+	}
+	
+	/**
+	 * @return 超出预算的帧数
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+	
+	/**
+	 * @return 单个任务耗时的指数移动平均
+	 */
+	public long getAvgTaskNs() {
+		return (long) avgTaskNs;
+	}
+	
+	/**
+	 * @return 已执行的任务数
+	 */
+	public long getLatencyCount() {
+		return latencyCount;
+	}
+	
+	/**
+	 * @return 平均排队时间(从add到开始执行)
+	 */
+	public long getAvgLatencyNs() {
+		long n = latencyCount;
+		return n == 0 ? 0 : latencySumNs / n;
+	}
+	
+	public long getMaxLatencyNs() {
+		return latencyMaxNs;
+	}
+	
+	/**
+	 * @return 最近的排队时间(指数移动平均)
+	 */
+	public long getRecentLatencyNs() {
+		return (long) latencyEmaNs;
+	}
+	
+	private void append(Task task) {
+		Task prev = tail.getAndSet(task);
+		prev.setNext(task);
 	}
 	
+	/**
+	 * 任意线程调用,不会阻塞
+	 */
 	public void add(Runnable runnable) {
-		add(new Task(runnable));
+		enqueued.increment();
+		append(new Task(runnable));
 	}
 	
 	public void endFrame() {
-		add(new Break());
+		append(new Break(false));
 	}
 	
 	static class Task {
+		private static final VarHandle NEXT;
+		
+		static {
+			try {
+				NEXT = MethodHandles.lookup().findVarHandle(Task.class, "next", Task.class);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+		
 		@Nullable
-		Task next;
+		private Task next;
 		final Runnable runnable;
+		final long enqueuedNs = System.nanoTime();
 		
 		Task(Runnable runnable) {
 			this.runnable = runnable;
 		}
 		
-		Task bind(Task next) {
-			this.next = next;
-			return next;
+		/**
+		 * release写,保证消费者看到next时也能看到runnable
+		 */
+		void setNext(Task next) {
+			NEXT.setRelease(this, next);
+		}
+		
+		@Nullable
+		Task getNext() {
+			return (Task) NEXT.getAcquire(this);
 		}
 		
 		boolean hasNext() {
-			return next != null;
+			return getNext() != null;
 		}
 		
 		void run() {
@@ -88,18 +271,19 @@ public class TaskChain {
 	}
 	
 	static class Break extends Task {
-		Break() {
+		/**
+		 * true为run时自动插入的帧边界
+		 */
+		final boolean auto;
+		
+		Break(boolean auto) {
 			super(null);
+			this.auto = auto;
 		}
 		
 		@Override
 		void run() {
 		}
-		
-		@Override
-		Task bind(Task next) {
-			return next instanceof Break ? this : super.bind(next);
-		}
 	}
 	
 	@Deprecated(forRemoval = true)
@@ -13,6 +13,7 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.block.Block;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static cn.breadnicecat.reciperenderer.utils.CommonUtils.make;
@@ -46,16 +47,22 @@ public class WorldlyContainer {
 		checkStatus();
 		if (!finished) setFinished();
 		Registry<Block> blocks = level.registryAccess().registryOrThrow(Registries.BLOCK);
+		return merge(chunks, b -> Objects.requireNonNull(blocks.getKey(b)));
+	}
+	
+	/**
+	 * 与level无关的合并部分,单独拿出来方便基准测试
+	 *
+	 * @param keys 方块->注册名
+	 */
+	public static Set<WorldlyBlockEntry> merge(Collection<ChunkContainer> chunks, Function<Block, ResourceLocation> keys) {
 		HashMap<Block, WorldlyBlockEntry.Builder> entries = new HashMap<>();
 		
 		for (ChunkContainer chunk : chunks) {
 			//block->(y,count)
 			for (Map.Entry<Block, Int2IntAVLTreeMap> b2count : chunk.entries.entrySet()) {
 				Block block = b2count.getKey();
-				WorldlyBlockEntry.Builder builder = entries.computeIfAbsent(block, b -> {
-					ResourceLocation key = Objects.requireNonNull(blocks.getKey(b));
-					return new WorldlyBlockEntry.Builder(b, key);
-				});
+				WorldlyBlockEntry.Builder builder = entries.computeIfAbsent(block, b -> new WorldlyBlockEntry.Builder(b, keys.apply(b)));
 				//(block:) y->count
 				for (Int2IntMap.Entry b2y : b2count.getValue().int2IntEntrySet()) {
 					int y = b2y.getIntKey();
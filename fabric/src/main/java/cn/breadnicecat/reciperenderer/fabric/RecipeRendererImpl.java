@@ -3,6 +3,7 @@ package cn.breadnicecat.reciperenderer.fabric;
 import cn.breadnicecat.reciperenderer.RecipeRenderer;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.impl.datagen.FabricDataGenHelper;
@@ -30,6 +31,8 @@ public class RecipeRendererImpl implements ModInitializer {
 		WorldRenderEvents.END.register((p) -> {
 			RecipeRenderer._onFrameUpdate();
 		});
+		//不一定在渲染线程上触发
+		ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> client.execute(RecipeRenderer::_onLeaveWorld));
 		CommandRegistrationCallback.EVENT.register((dispatcher, context, b) -> RecipeRenderer._onRegisterCMD(context, dispatcher));
 	}
 	
@@ -1,10 +1,12 @@
 package cn.breadnicecat.reciperenderer.neoforge;
 
 import cn.breadnicecat.reciperenderer.RecipeRenderer;
+import net.minecraft.client.Minecraft;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.loading.FMLLoader;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
 import net.neoforged.neoforge.client.event.RenderFrameEvent;
 import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.data.loading.DatagenModLoader;
@@ -33,6 +35,7 @@ public class RecipeRendererImpl {
 		IEventBus eventBus = NeoForge.EVENT_BUS;
 		eventBus.addListener(this::onRegisterCommands);
 		eventBus.addListener(this::onFrameUpdate);
+		eventBus.addListener(this::onLoggingOut);
 	}
 	
 	public void onRegisterCommands(RegisterCommandsEvent event) {
@@ -42,4 +45,8 @@ public class RecipeRendererImpl {
 	public void onFrameUpdate(RenderFrameEvent.Post event) {
 		_onFrameUpdate();
 	}
+	
+	public void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+		Minecraft.getInstance().execute(RecipeRenderer::_onLeaveWorld);
+	}
 }